@@ -1,5 +1,7 @@
 package actions;
 
+import java.util.Set;
+
 /**
  * Interface for all assistant actions.
  * Each action represents a specific capability of the virtual assistant.
@@ -27,4 +29,42 @@ public interface Action {
      * Checks if this action can be executed given the current context.
      */
     boolean canExecute(ActionContext context);
+
+    // --- Scheduling metadata, used by ActionGraph to order and skip work ---
+
+    /**
+     * Context keys this action reads. An action that reads a key another action writes runs after it.
+     */
+    default Set<ContextKey<?>> getInputs() {
+        return Set.of();
+    }
+
+    /**
+     * Context keys this action writes. Actions with outputs run in the capture stage of each tick.
+     */
+    default Set<ContextKey<?>> getOutputs() {
+        return Set.of();
+    }
+
+    /**
+     * When this action runs; fields can be overridden per deployment in data/system/schedules.json.
+     */
+    default ActionSchedule getSchedule() {
+        return ActionSchedule.EVERY_TICK;
+    }
+
+    /**
+     * Rough cost of one run, used to start the slowest actions first.
+     */
+    default long getEstimatedCostMs() {
+        return 0;
+    }
+
+    /**
+     * A value that changes whenever this action's output would. When it equals the previous run's
+     * fingerprint, the previous output is reused instead of running again. Null means always run.
+     */
+    default Object getInputFingerprint(ActionContext context) {
+        return null;
+    }
 }
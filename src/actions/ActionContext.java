@@ -1,33 +1,176 @@
 package actions;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Context object that carries data between actions and provides state information.
+ * Values live in an array indexed by {@link ContextKey}, so access is a bounds check and a load.
+ * Not thread-safe; the global context shared across threads is a {@link #concurrent()} instance.
  */
 public class ActionContext {
-    private final Map<String, Object> data = new HashMap<>();
+    private Object[] slots;
+    // Set on forks: the parent's values and list sizes at fork time, so changes() can tell what is new
+    private Object[] forkOrigin = null;
+    private int[] forkedListSizes = null;
 
-    public void put(String key, Object value) {
-        data.put(key, value);
+    public ActionContext() {
+        slots = new Object[ContextKey.count()];
+    }
+
+    /**
+     * Creates a context whose operations are synchronized, for state shared between threads.
+     */
+    public static ActionContext concurrent() {
+        return new Concurrent();
+    }
+
+    public <T> void put(ContextKey<T> key, T value) {
+        ensureCapacity(key.index());
+        slots[key.index()] = value;
     }
 
     @SuppressWarnings("unchecked")
-    public <T> T get(String key) {
-        return (T) data.get(key);
+    public <T> T get(ContextKey<T> key) {
+        int i = key.index();
+        return i < slots.length ? (T) slots[i] : null;
     }
 
-    public <T> T get(String key, Class<T> type) {
-        Object value = data.get(key);
-        return type.isInstance(value) ? type.cast(value) : null;
+    public boolean contains(ContextKey<?> key) {
+        return get(key) != null;
     }
 
-    public boolean contains(String key) {
-        return data.containsKey(key);
+    public void remove(ContextKey<?> key) {
+        int i = key.index();
+        if (i < slots.length) slots[i] = null;
     }
 
     public void clear() {
-        data.clear();
+        Arrays.fill(slots, null);
+        forkOrigin = null;
+        forkedListSizes = null;
+    }
+
+    /**
+     * Creates a context for an action running in parallel with others. Plain values are shared;
+     * appendable slots get private copies so contributors never write to the same builder or list:
+     * StringBuilders start empty and lists start as copies. Use {@link #changes} and {@link #merge}
+     * to fold the action's output back.
+     */
+    public ActionContext fork() {
+        ActionContext child = new ActionContext();
+        child.ensureCapacity(slots.length - 1);
+        child.forkOrigin = slots.clone();
+        child.forkedListSizes = new int[slots.length];
+        Arrays.fill(child.forkedListSizes, -1);
+        for (int i = 0; i < slots.length; i++) {
+            Object value = slots[i];
+            if (value instanceof StringBuilder) {
+                child.slots[i] = new StringBuilder();
+            } else if (value instanceof List<?> list) {
+                child.slots[i] = new ArrayList<>(list);
+                child.forkedListSizes[i] = list.size();
+            } else {
+                child.slots[i] = value;
+            }
+        }
+        return child;
+    }
+
+    /**
+     * Returns what an action wrote into this forked context: builder text, list entries added
+     * after the fork, and values it put or replaced. The result is independent of this context,
+     * so it can be kept and merged again later.
+     */
+    public ActionContext changes() {
+        ActionContext delta = new ActionContext();
+        delta.ensureCapacity(slots.length - 1);
+        for (int i = 0; i < slots.length; i++) {
+            Object value = slots[i];
+            if (value == null) continue;
+            int base = forkedListSizes != null && i < forkedListSizes.length ? forkedListSizes[i] : -1;
+            if (value instanceof StringBuilder sb) {
+                if (sb.length() > 0) delta.slots[i] = new StringBuilder(sb);
+            } else if (value instanceof List<?> list && base >= 0) {
+                if (list.size() > base) delta.slots[i] = new ArrayList<>(list.subList(base, list.size()));
+            } else if (value instanceof List<?> list) {
+                delta.slots[i] = new ArrayList<>(list);
+            } else if (forkOrigin == null || i >= forkOrigin.length || forkOrigin[i] != value) {
+                delta.slots[i] = value;
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Applies a change set from {@link #changes}: builder text and list entries are appended,
+     * other values replace ours. The change set itself is left untouched.
+     */
+    @SuppressWarnings("unchecked")
+    public void merge(ActionContext changes) {
+        Object[] source = changes.slots;
+        ensureCapacity(source.length - 1);
+        for (int i = 0; i < source.length; i++) {
+            Object value = source[i];
+            if (value == null) continue;
+            Object current = slots[i];
+            if (value instanceof StringBuilder sb) {
+                if (current instanceof StringBuilder target) target.append(sb);
+                else slots[i] = new StringBuilder(sb);
+            } else if (value instanceof List<?> list) {
+                if (current instanceof List<?> target) ((List<Object>) target).addAll(list);
+                else slots[i] = new ArrayList<>(list);
+            } else {
+                slots[i] = value;
+            }
+        }
+    }
+
+    private void ensureCapacity(int index) {
+        if (index < slots.length) return;
+        // Keys created after this context was (e.g. by an action registered late)
+        slots = Arrays.copyOf(slots, Math.max(index + 1, ContextKey.count()));
+    }
+
+    /**
+     * Synchronized variant for the global context, which the capture stage, the inference stage
+     * and the side-effect thread all touch.
+     */
+    private static final class Concurrent extends ActionContext {
+        @Override
+        public synchronized <T> void put(ContextKey<T> key, T value) {
+            super.put(key, value);
+        }
+
+        @Override
+        public synchronized <T> T get(ContextKey<T> key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized void remove(ContextKey<?> key) {
+            super.remove(key);
+        }
+
+        @Override
+        public synchronized void clear() {
+            super.clear();
+        }
+
+        @Override
+        public synchronized ActionContext fork() {
+            return super.fork();
+        }
+
+        @Override
+        public synchronized ActionContext changes() {
+            return super.changes();
+        }
+
+        @Override
+        public synchronized void merge(ActionContext changes) {
+            super.merge(changes);
+        }
     }
 }
@@ -0,0 +1,27 @@
+package actions;
+
+import java.util.ArrayDeque;
+
+/**
+ * Small free list of per-tick contexts, so each thinking cycle reuses a cleared context instead
+ * of allocating a new one. A context must only be released once nothing else refers to it.
+ */
+class ActionContextPool {
+    private final ArrayDeque<ActionContext> free = new ArrayDeque<>();
+    private final int maxSize;
+
+    ActionContextPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    synchronized ActionContext acquire() {
+        ActionContext context = free.pollFirst();
+        return context != null ? context : new ActionContext();
+    }
+
+    synchronized void release(ActionContext context) {
+        if (context == null || free.size() >= maxSize) return;
+        context.clear();
+        free.addFirst(context);
+    }
+}
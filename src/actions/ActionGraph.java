@@ -0,0 +1,168 @@
+package actions;
+
+import java.util.*;
+
+/**
+ * Schedules the capture-stage actions of a tick from what they declare about themselves
+ * (inputs, outputs, schedule, cost) instead of a hard-coded list.
+ * - Every registered action with outputs is a node; B depends on A when B reads a key A writes.
+ * - Nodes are run layer by layer; nodes in the same layer are independent and run concurrently,
+ *   slowest first (by measured run time), and their changes are merged in registration order.
+ * - A node runs only on ticks its {@link ActionSchedule} makes it due, see {@link ActionScheduler}.
+ * - A node whose input fingerprint matches its last run contributes that run's output again
+ *   without executing.
+ * The graph is rebuilt each tick, so actions registered later are picked up.
+ */
+public class ActionGraph {
+
+    private final ActionManager actionManager;
+    private final ActionScheduler scheduler;
+    // Last successful run per action: the fingerprint it ran with and the changes it made
+    private final Map<String, CachedRun> cache = new HashMap<>();
+
+    public ActionGraph(ActionManager actionManager, ActionScheduler scheduler) {
+        this.actionManager = actionManager;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Runs the producer actions for one tick against the context.
+     * Returns every node's result keyed by action ID, in registration order; nodes that are not
+     * due this tick are reported as skipped, reused outputs as successful.
+     */
+    public Map<String, ActionResult> run(ActionContext context, long tick) {
+        return run(context, tick, null);
+    }
+
+    /**
+     * Same as above, and also collects the changes each node merged into the context (executed or
+     * reused) into {@code changesOut}, keyed by action ID.
+     */
+    public synchronized Map<String, ActionResult> run(ActionContext context, long tick, Map<String, ActionContext> changesOut) {
+        List<Action> nodes = new ArrayList<>();
+        for (Action action : actionManager.getRegisteredActions()) {
+            if (!action.getOutputs().isEmpty()) nodes.add(action);
+        }
+
+        Map<String, ActionResult> results = new HashMap<>();
+        for (List<Action> layer : layers(nodes)) {
+            runLayer(layer, context, tick, results, changesOut);
+        }
+
+        Map<String, ActionResult> ordered = new LinkedHashMap<>();
+        for (Action action : nodes) ordered.put(action.getActionId(), results.get(action.getActionId()));
+        return ordered;
+    }
+
+    private void runLayer(List<Action> layer, ActionContext context, long tick, Map<String, ActionResult> results, Map<String, ActionContext> changesOut) {
+        Map<String, ActionContext> changes = new HashMap<>();
+        Map<String, Object> fingerprints = new HashMap<>();
+        List<Action> toExecute = new ArrayList<>();
+
+        for (Action action : layer) {
+            String id = action.getActionId();
+            String skipReason = scheduler.skipReason(action, context, tick);
+            if (skipReason != null) {
+                results.put(id, ActionResult.skipped(skipReason));
+                continue;
+            }
+            scheduler.markStarted(action, tick);
+            Object fingerprint = fingerprintOf(action, context);
+            CachedRun cached = cache.get(id);
+            if (fingerprint != null && cached != null && fingerprint.equals(cached.fingerprint)) {
+                changes.put(id, cached.changes);
+                results.put(id, ActionResult.success("Reused output; inputs unchanged"));
+                continue;
+            }
+            fingerprints.put(id, fingerprint);
+            toExecute.add(action);
+        }
+
+        // Longest first, so the slowest node is not started last and left to run alone
+        toExecute.sort(Comparator.comparingLong(scheduler::estimatedCostMs).reversed());
+        List<String> ids = toExecute.stream().map(Action::getActionId).toList();
+        Map<String, ActionResult> executed = new HashMap<>();
+        Map<String, Long> elapsedMs = new HashMap<>();
+        Map<String, ActionContext> forks = actionManager.executeForked(ids, context, executed, elapsedMs);
+        for (Action action : toExecute) {
+            Long elapsed = elapsedMs.get(action.getActionId());
+            if (elapsed != null) scheduler.recordCost(action, elapsed);
+        }
+
+        for (String id : ids) {
+            ActionResult result = executed.get(id);
+            results.put(id, result);
+            if (!result.isSuccess()) {
+                cache.remove(id);
+                continue;
+            }
+            ActionContext delta = forks.get(id).changes();
+            changes.put(id, delta);
+            Object fingerprint = fingerprints.get(id);
+            if (fingerprint != null) cache.put(id, new CachedRun(fingerprint, delta));
+            else cache.remove(id);
+        }
+
+        // Merge in registration order so the prompt reads the same whichever node finished first
+        for (Action action : layer) {
+            ActionContext delta = changes.get(action.getActionId());
+            if (delta == null) continue;
+            context.merge(delta);
+            if (changesOut != null) changesOut.put(action.getActionId(), delta);
+        }
+    }
+
+    private Object fingerprintOf(Action action, ActionContext context) {
+        try {
+            return action.getInputFingerprint(context);
+        } catch (Exception e) {
+            System.err.println("Fingerprint failed for " + action.getActionId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Topologically sorts the nodes into layers; each layer only depends on earlier ones.
+     * Keeps registration order within a layer.
+     */
+    private static List<List<Action>> layers(List<Action> nodes) {
+        Map<Action, Set<Action>> dependsOn = new LinkedHashMap<>();
+        for (Action b : nodes) {
+            Set<Action> deps = new HashSet<>();
+            for (Action a : nodes) {
+                if (a != b && !Collections.disjoint(b.getInputs(), a.getOutputs())) deps.add(a);
+            }
+            dependsOn.put(b, deps);
+        }
+
+        List<List<Action>> layers = new ArrayList<>();
+        Set<Action> done = new HashSet<>();
+        while (done.size() < nodes.size()) {
+            List<Action> layer = new ArrayList<>();
+            for (Action node : nodes) {
+                if (!done.contains(node) && done.containsAll(dependsOn.get(node))) layer.add(node);
+            }
+            if (layer.isEmpty()) {
+                // Dependency cycle: run what is left together rather than not at all
+                for (Action node : nodes) {
+                    if (!done.contains(node)) layer.add(node);
+                }
+                System.err.println("Action dependency cycle among: "
+                        + layer.stream().map(Action::getActionId).toList() + "; running them together");
+            }
+            done.addAll(layer);
+            layers.add(layer);
+        }
+        return layers;
+    }
+
+    private static class CachedRun {
+        final Object fingerprint;
+        final ActionContext changes;
+
+        CachedRun(Object fingerprint, ActionContext changes) {
+            this.fingerprint = fingerprint;
+            this.changes = changes;
+        }
+    }
+}
@@ -2,6 +2,11 @@ package actions;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Manages all available actions for the virtual assistant.
@@ -10,13 +15,21 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ActionManager {
 
     private final Map<String, Action> registeredActions = new ConcurrentHashMap<>();
-    private final ActionContext globalContext = new ActionContext();
+    // Registration order; parallel results are merged in this order so prompts are deterministic
+    private final List<String> registrationOrder = new CopyOnWriteArrayList<>();
+    // Shared by the capture, inference and side-effect threads
+    private final ActionContext globalContext = ActionContext.concurrent();
+    // Bracket prefixes of the registered actions, recompiled whenever the set changes
+    private volatile BracketDispatcher bracketDispatcher = BracketDispatcher.EMPTY;
 
     /**
      * Registers a new action with the manager.
      */
     public void registerAction(Action action) {
-        registeredActions.put(action.getActionId(), action);
+        if (registeredActions.put(action.getActionId(), action) == null) {
+            registrationOrder.add(action.getActionId());
+        }
+        bracketDispatcher = BracketDispatcher.compile(getRegisteredActions());
         System.out.println("Registered action: " + action.getActionId() + " - " + action.getDescription());
     }
 
@@ -47,6 +60,57 @@ public class ActionManager {
         }
     }
 
+    /**
+     * Runs the given actions concurrently, each on a fork of the context, and returns the forks
+     * keyed by action ID without merging them. A single action runs inline on the caller's thread.
+     * Results are added to {@code results} in the order given, and run times to {@code elapsedMs} if non-null.
+     */
+    Map<String, ActionContext> executeForked(List<String> actionIds, ActionContext context, Map<String, ActionResult> results, Map<String, Long> elapsedMs) {
+        Map<String, ActionContext> forks = new LinkedHashMap<>();
+        if (actionIds.isEmpty()) return forks;
+        if (actionIds.size() == 1) {
+            String id = actionIds.get(0);
+            ActionContext fork = context.fork();
+            forks.put(id, fork);
+            long started = System.nanoTime();
+            results.put(id, executeAction(id, fork));
+            if (elapsedMs != null) elapsedMs.put(id, (System.nanoTime() - started) / 1_000_000);
+            return forks;
+        }
+
+        Map<String, Future<ActionResult>> futures = new LinkedHashMap<>();
+        Map<String, Long> durations = new ConcurrentHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String id : actionIds) {
+                ActionContext fork = context.fork();
+                forks.put(id, fork);
+                futures.put(id, executor.submit(() -> {
+                    long started = System.nanoTime();
+                    try {
+                        return executeAction(id, fork);
+                    } finally {
+                        durations.put(id, (System.nanoTime() - started) / 1_000_000);
+                    }
+                }));
+            }
+        } // close() waits for every action to finish
+        if (elapsedMs != null) elapsedMs.putAll(durations);
+
+        for (String id : actionIds) {
+            ActionResult result;
+            try {
+                result = futures.get(id).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result = ActionResult.failure("Action interrupted: " + id);
+            } catch (ExecutionException e) {
+                result = ActionResult.failure("Action execution failed: " + e.getCause().getMessage());
+            }
+            results.put(id, result);
+        }
+        return forks;
+    }
+
     /**
      * Gets all available actions that can be executed with the current context.
      */
@@ -94,10 +158,29 @@ public class ActionManager {
     }
 
     /**
-     * Returns the live collection of registered Action instances.
+     * Returns the registered Action instances in registration order.
      */
     public java.util.Collection<Action> getRegisteredActions() {
-        return registeredActions.values();
+        List<Action> actions = new ArrayList<>(registrationOrder.size());
+        for (String id : registrationOrder) {
+            Action action = registeredActions.get(id);
+            if (action != null) actions.add(action);
+        }
+        return actions;
+    }
+
+    /**
+     * Returns the dispatcher for the bracket prefixes of the registered actions.
+     */
+    public BracketDispatcher getBracketDispatcher() {
+        return bracketDispatcher;
+    }
+
+    /**
+     * Gets a registered action by its ID, or null.
+     */
+    public Action getAction(String actionId) {
+        return registeredActions.get(actionId);
     }
 
     /**
@@ -112,7 +195,9 @@ public class ActionManager {
      */
     public boolean unregisterAction(String actionId) {
         Action removed = registeredActions.remove(actionId);
+        registrationOrder.remove(actionId);
         if (removed != null) {
+            bracketDispatcher = BracketDispatcher.compile(getRegisteredActions());
             System.out.println("Unregistered action: " + actionId);
             return true;
         }
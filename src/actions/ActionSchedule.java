@@ -0,0 +1,84 @@
+package actions;
+
+import config.ScheduleConfig;
+
+import java.util.List;
+
+/**
+ * When an action should run, as declared by the action and optionally overridden per deployment
+ * in data/system/schedules.json:
+ * - periodTicks: runs every N ticks
+ * - jitterTicks: each next run is moved by up to this many ticks either way, so actions with the
+ *   same period drift apart instead of piling onto the same tick
+ * - maxCostMs: if the action's measured run time exceeds this, its period is stretched until it
+ *   fits again (0 = no budget)
+ * - preconditions: named conditions that must all hold, see {@link ActionScheduler}
+ */
+public final class ActionSchedule {
+
+    public static final ActionSchedule EVERY_TICK = every(1);
+
+    private final int periodTicks;
+    private final int jitterTicks;
+    private final long maxCostMs;
+    private final List<String> preconditions;
+
+    private ActionSchedule(int periodTicks, int jitterTicks, long maxCostMs, List<String> preconditions) {
+        this.periodTicks = Math.max(1, periodTicks);
+        this.jitterTicks = Math.max(0, jitterTicks);
+        this.maxCostMs = Math.max(0, maxCostMs);
+        this.preconditions = List.copyOf(preconditions);
+    }
+
+    public static ActionSchedule every(int periodTicks) {
+        return new ActionSchedule(periodTicks, 0, 0, List.of());
+    }
+
+    public ActionSchedule withJitter(int jitterTicks) {
+        return new ActionSchedule(periodTicks, jitterTicks, maxCostMs, preconditions);
+    }
+
+    public ActionSchedule withMaxCostMs(long maxCostMs) {
+        return new ActionSchedule(periodTicks, jitterTicks, maxCostMs, preconditions);
+    }
+
+    public ActionSchedule withPreconditions(String... names) {
+        return new ActionSchedule(periodTicks, jitterTicks, maxCostMs, List.of(names));
+    }
+
+    /**
+     * Applies the fields set in a schedules.json entry.
+     */
+    public ActionSchedule withOverrides(ScheduleConfig.Entry entry) {
+        if (entry == null) return this;
+        return new ActionSchedule(
+                entry.getPeriodTicks() != null ? entry.getPeriodTicks() : periodTicks,
+                entry.getJitterTicks() != null ? entry.getJitterTicks() : jitterTicks,
+                entry.getMaxCostMs() != null ? entry.getMaxCostMs() : maxCostMs,
+                entry.getPreconditions() != null ? entry.getPreconditions() : preconditions);
+    }
+
+    public int getPeriodTicks() {
+        return periodTicks;
+    }
+
+    public int getJitterTicks() {
+        return jitterTicks;
+    }
+
+    public long getMaxCostMs() {
+        return maxCostMs;
+    }
+
+    public List<String> getPreconditions() {
+        return preconditions;
+    }
+
+    @Override
+    public String toString() {
+        return "every " + periodTicks + " tick(s)"
+                + (jitterTicks > 0 ? " +/-" + jitterTicks : "")
+                + (maxCostMs > 0 ? ", max " + maxCostMs + " ms" : "")
+                + (preconditions.isEmpty() ? "" : ", when " + String.join(" & ", preconditions));
+    }
+}
@@ -0,0 +1,128 @@
+package actions;
+
+import config.ConfigurationManager;
+import core.ActivitySampler;
+import core.AppState;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Decides on which ticks each action runs, from its {@link ActionSchedule}.
+ * - An action that has not run yet is due right away. Its second run is delayed by a phase derived
+ *   from its ID, so actions with the same period then fall on different ticks instead of all together.
+ * - After a run, the next due tick is one period later, moved by the schedule's jitter.
+ * - Run times are tracked as a moving average; an action over its cost budget has its period
+ *   doubled (up to 4x) until it is comfortably under budget again.
+ * Named preconditions: "running", "user_active", "tts_available". They are checked before the
+ * tick's actions run, so they can only look at state that exists by then.
+ */
+public class ActionScheduler {
+    private static final double COST_SMOOTHING = 0.3;
+    private static final int MAX_STRETCH = 4;
+
+    private static final Map<String, Predicate<ActionContext>> preconditions = new ConcurrentHashMap<>();
+    private static final Set<String> warnedPreconditions = ConcurrentHashMap.newKeySet();
+
+    static {
+        registerPrecondition("running", ctx -> AppState.isRunning);
+        registerPrecondition("user_active", ctx -> !ActivitySampler.isIdle());
+        registerPrecondition("tts_available", ctx -> AppState.useTTS() && AppState.isTtsApiAvailable);
+    }
+
+    private static final class State {
+        long nextDueTick = -1; // -1: not run yet
+        double avgCostMs = -1; // -1: not measured yet
+        int stretch = 1;
+    }
+
+    private final Map<String, State> states = new HashMap<>();
+
+    /**
+     * Makes a named precondition available to schedules and schedules.json.
+     */
+    public static void registerPrecondition(String name, Predicate<ActionContext> condition) {
+        preconditions.put(name, condition);
+    }
+
+    /**
+     * The action's own schedule with any schedules.json overrides applied.
+     */
+    public ActionSchedule scheduleOf(Action action) {
+        return action.getSchedule().withOverrides(ConfigurationManager.getScheduleOverride(action.getActionId()));
+    }
+
+    /**
+     * Returns why the action should not run on this tick, or null if it is due.
+     */
+    public synchronized String skipReason(Action action, ActionContext context, long tick) {
+        ActionSchedule schedule = scheduleOf(action);
+        State state = stateOf(action);
+        if (state.nextDueTick >= 0 && tick < state.nextDueTick) {
+            return "Not due until tick " + state.nextDueTick + " (" + schedule + ")";
+        }
+        for (String name : schedule.getPreconditions()) {
+            Predicate<ActionContext> condition = preconditions.get(name);
+            if (condition == null) {
+                if (warnedPreconditions.add(name)) {
+                    System.err.println("Unknown precondition '" + name + "' in schedule of " + action.getActionId() + "; ignoring it");
+                }
+                continue;
+            }
+            if (!condition.test(context)) return "Precondition not met: " + name;
+        }
+        return null;
+    }
+
+    /**
+     * Records that the action runs (or reuses its output) on this tick and picks its next due tick.
+     */
+    public synchronized void markStarted(Action action, long tick) {
+        ActionSchedule schedule = scheduleOf(action);
+        State state = stateOf(action);
+        int jitter = schedule.getJitterTicks();
+        int offset = jitter > 0 ? ThreadLocalRandom.current().nextInt(-jitter, jitter + 1) : 0;
+        long period = (long) schedule.getPeriodTicks() * state.stretch;
+        if (state.nextDueTick < 0) {
+            // First run: shift the following ones by the ID's phase to spread same-period actions
+            offset += Math.floorMod(action.getActionId().hashCode(), (int) period);
+        }
+        state.nextDueTick = tick + Math.max(1, period + offset);
+    }
+
+    /**
+     * Records how long a run took, stretching or relaxing the period against the cost budget.
+     */
+    public synchronized void recordCost(Action action, long elapsedMs) {
+        ActionSchedule schedule = scheduleOf(action);
+        State state = stateOf(action);
+        state.avgCostMs = state.avgCostMs < 0 ? elapsedMs : state.avgCostMs + COST_SMOOTHING * (elapsedMs - state.avgCostMs);
+        long budget = schedule.getMaxCostMs();
+        if (budget <= 0) return;
+        if (state.avgCostMs > budget && state.stretch < MAX_STRETCH) {
+            state.stretch *= 2;
+            System.out.println("[Schedule] " + action.getActionId() + " averages " + Math.round(state.avgCostMs)
+                    + " ms (budget " + budget + " ms); running it every " + schedule.getPeriodTicks() * state.stretch + " ticks");
+        } else if (state.avgCostMs < budget / 2.0 && state.stretch > 1) {
+            state.stretch /= 2;
+            System.out.println("[Schedule] " + action.getActionId() + " back under budget; running it every "
+                    + schedule.getPeriodTicks() * state.stretch + " ticks");
+        }
+    }
+
+    /**
+     * Measured average run time, or the action's own estimate until it has run.
+     */
+    public synchronized long estimatedCostMs(Action action) {
+        State state = states.get(action.getActionId());
+        return state != null && state.avgCostMs >= 0 ? Math.round(state.avgCostMs) : action.getEstimatedCostMs();
+    }
+
+    private State stateOf(Action action) {
+        return states.computeIfAbsent(action.getActionId(), id -> new State());
+    }
+}
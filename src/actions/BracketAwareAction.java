@@ -20,4 +20,14 @@ public interface BracketAwareAction extends Action {
      * does not start with one of their prefixes.
      */
     void handleBracket(String content, ActionContext context);
+
+    /**
+     * Same as above, but may add the command to {@code batch} instead of applying it right away;
+     * the batch is applied once the whole model output has been routed. Actions writing to a
+     * store should merge their commands into one update there, so the store is saved once.
+     * By default the command is handled immediately.
+     */
+    default void handleBracket(String content, ActionContext context, CommandBatch batch) {
+        handleBracket(content, context);
+    }
 }
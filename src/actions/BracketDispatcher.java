@@ -0,0 +1,176 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Routes bracketed sections of a model output ([levels:...], [memory:...]) to the
+ * BracketAwareActions that declared their prefixes.
+ * - Compiled once from the registered actions into a prefix trie, so a section is matched against
+ *   every prefix in one walk over its characters.
+ * - Sections are read by a {@link BracketStreamParser} in a single pass over a CharSequence; a
+ *   section's text is only copied out when some action handles it (or for logging).
+ * - When several actions match the same section, they are called in registration order.
+ * - Commands are collected into a {@link CommandBatch} and applied after the whole output, so
+ *   each store is written once.
+ * Immutable once compiled, so it can be shared between threads.
+ */
+public final class BracketDispatcher {
+
+    public static final BracketDispatcher EMPTY = compile(List.of());
+
+    private static final String SPEAK_PREFIX = "speak:";
+
+    private final Node root = new Node();
+    private final Set<String> prefixes = new HashSet<>();
+
+    private BracketDispatcher() {
+    }
+
+    /**
+     * Builds the trie from the bracket prefixes of the given actions, in registration order.
+     */
+    public static BracketDispatcher compile(Collection<Action> actions) {
+        BracketDispatcher dispatcher = new BracketDispatcher();
+        int ordinal = 0;
+        for (Action action : actions) {
+            if (!(action instanceof BracketAwareAction baa)) continue;
+            List<String> actionPrefixes = baa.getBracketPrefixes();
+            if (actionPrefixes != null) {
+                for (String prefix : actionPrefixes) {
+                    if (prefix != null && !prefix.isEmpty()) dispatcher.add(prefix, baa, ordinal);
+                }
+            }
+            ordinal++;
+        }
+        return dispatcher;
+    }
+
+    private void add(String prefix, BracketAwareAction action, int ordinal) {
+        Node node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.childOrCreate(prefix.charAt(i));
+        }
+        node.prefix = prefix;
+        for (Handler h : node.handlers) {
+            if (h.action == action) return;
+        }
+        node.handlers.add(new Handler(action, ordinal));
+        prefixes.add(prefix);
+    }
+
+    /**
+     * Routes every bracketed section of {@code raw} and reports expected prefixes that did not appear.
+     * @param context Global context handed to the handlers
+     * @param expectedPrefixes Bracket prefixes expected this tick (nullable)
+     */
+    public void dispatch(CharSequence raw, ActionContext context, List<String> expectedPrefixes) {
+        CommandBatch batch = new CommandBatch();
+        dispatch(raw, context, expectedPrefixes, batch);
+        batch.apply();
+    }
+
+    /**
+     * Same as above, but leaves the commands collected in {@code batch} for the caller to apply,
+     * so several outputs can share one batch.
+     */
+    public void dispatch(CharSequence raw, ActionContext context, List<String> expectedPrefixes, CommandBatch batch) {
+        if (raw == null) return;
+        Set<String> foundPrefixes = new HashSet<>();
+        List<Handler> matched = new ArrayList<>(2);
+        BracketStreamParser parser = new BracketStreamParser(section -> route(section, context, expectedPrefixes, foundPrefixes, matched, batch));
+        parser.feed(raw);
+        parser.finish();
+        if (parser.getCommandCount() == 0) {
+            System.out.println("No bracketed sections found in model output.");
+        } else if (expectedPrefixes != null && !expectedPrefixes.isEmpty()) {
+            for (String prefix : expectedPrefixes) {
+                if (!foundPrefixes.contains(prefix)) {
+                    System.out.println("No [" + prefix + "...] command found; no effect for this prefix this cycle.");
+                }
+            }
+        }
+    }
+
+    private void route(CharSequence section, ActionContext context, List<String> expectedPrefixes, Set<String> foundPrefixes, List<Handler> matched, CommandBatch batch) {
+        int length = section.length();
+        if (!regionStartsWith(section, 0, length, SPEAK_PREFIX)) {
+            System.out.println("Bracketed section found: [" + section + "]");
+        }
+
+        // Walk the trie along the section; every node passed that ends a prefix is a match
+        matched.clear();
+        Node node = root;
+        for (int i = 0; i < length && node != null; i++) {
+            node = node.child(section.charAt(i));
+            if (node != null && node.prefix != null) {
+                foundPrefixes.add(node.prefix);
+                matched.addAll(node.handlers);
+            }
+        }
+        if (expectedPrefixes != null) {
+            for (String prefix : expectedPrefixes) {
+                // Expected prefixes are normally compiled in; check the others directly
+                if (!prefixes.contains(prefix) && regionStartsWith(section, 0, length, prefix)) {
+                    foundPrefixes.add(prefix);
+                }
+            }
+        }
+        if (matched.isEmpty()) return;
+        if (matched.size() > 1) matched.sort((a, b) -> Integer.compare(a.ordinal, b.ordinal));
+        String content = section.toString();
+        BracketAwareAction last = null;
+        for (Handler h : matched) {
+            if (h.action == last) continue; // one call per action, even if several of its prefixes match
+            last = h.action;
+            try { h.action.handleBracket(content, context, batch); } catch (Throwable ignored) {}
+        }
+    }
+
+    private static boolean regionStartsWith(CharSequence s, int start, int stop, String prefix) {
+        if (stop - start < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(start + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static final class Handler {
+        final BracketAwareAction action;
+        final int ordinal; // registration order
+
+        Handler(BracketAwareAction action, int ordinal) {
+            this.action = action;
+            this.ordinal = ordinal;
+        }
+    }
+
+    private static final class Node {
+        // Children as parallel arrays; prefixes share few characters, so a scan beats hashing
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        String prefix; // non-null if a prefix ends here
+        final List<Handler> handlers = new ArrayList<>(1);
+
+        Node child(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        Node childOrCreate(char c) {
+            Node existing = child(c);
+            if (existing != null) return existing;
+            int n = keys.length;
+            keys = java.util.Arrays.copyOf(keys, n + 1);
+            children = java.util.Arrays.copyOf(children, n + 1);
+            keys[n] = c;
+            children[n] = new Node();
+            return children[n];
+        }
+    }
+}
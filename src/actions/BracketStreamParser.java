@@ -0,0 +1,181 @@
+package actions;
+
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for the bracketed commands in a model output ([speak:(...)], [levels:...]).
+ * - Text can be fed in chunks as it streams in; each command is emitted as soon as its closing
+ *   bracket arrives. Only the unfinished command is buffered, text between commands is dropped.
+ * - Brackets and parentheses nest, so [memory:write_long_term('likes [x] (a lot)')] is one command.
+ * - Quotes hide brackets and parentheses. A quote only opens at the start of an argument of a
+ *   function call (after "name(" or ","), and only closes before ")", "," or "]". Prose such as
+ *   [speak:(Hmm, 'Elden Ring' again?)] or "don't" never opens one, since "speak:(" is not a call.
+ * - If a command cannot be closed (a quote or parenthesis left open), it is cut at its first "]"
+ *   instead, as a plain bracket scan would, and parsing resumes after it. This happens when the
+ *   output ends, or early once the command is longer than {@link #MAX_COMMAND_LENGTH}.
+ * Emitted commands are trimmed and exclude the outer brackets. Not thread-safe: one parser per output.
+ */
+public class BracketStreamParser {
+
+    static final int MAX_COMMAND_LENGTH = 8192;
+
+    private final Consumer<CharSequence> onCommand;
+    // Content of the command being read; empty and unused between commands
+    private final StringBuilder buffer = new StringBuilder();
+    private boolean inCommand = false;
+    private int bracketDepth = 0;
+    private int parenDepth = 0;
+    // Bit d set: the parenthesis at depth d+1 opens a function call's argument list, e.g. "write(" not "speak:("
+    private final BitSet argLists = new BitSet();
+    private char quote = 0; // quote char while inside a quoted string
+    private boolean closingQuote = false; // saw a quote that closes the string if ")", "," or "]" follows
+    private char lastSignificant = 0; // last non-whitespace char of the command, outside quotes
+    // Buffer index of the command's first "]", where a plain scan would have ended it; -1 if none yet
+    private int plainEnd = -1;
+    private int commands = 0;
+
+    /**
+     * @param onCommand Receives each complete command; the CharSequence is only valid during the call
+     */
+    public BracketStreamParser(Consumer<CharSequence> onCommand) {
+        this.onCommand = onCommand;
+    }
+
+    /**
+     * Parses the next chunk of output.
+     */
+    public void feed(CharSequence chunk) {
+        if (chunk == null) return;
+        for (int i = 0; i < chunk.length(); i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    /**
+     * Ends the output. An unfinished command is recovered at its first "]" if it has one, and dropped otherwise.
+     */
+    public void finish() {
+        while (inCommand && plainEnd >= 0) {
+            recoverAtPlainEnd();
+        }
+        reset();
+    }
+
+    /**
+     * Number of commands emitted so far.
+     */
+    public int getCommandCount() {
+        return commands;
+    }
+
+    /**
+     * Whether an unfinished command is buffered, i.e. more output is needed to complete it.
+     */
+    public boolean hasPending() {
+        return inCommand;
+    }
+
+    private void accept(char c) {
+        if (!inCommand) {
+            if (c == '[') {
+                inCommand = true;
+                bracketDepth = 1;
+            }
+            return;
+        }
+
+        if (c == ']' && plainEnd < 0) plainEnd = buffer.length();
+
+        if (quote != 0) {
+            if (closingQuote && !Character.isWhitespace(c)) {
+                closingQuote = false;
+                if (c == ')' || c == ',' || c == ']') {
+                    quote = 0; // the quote did close the string; handle c as structure below
+                } else if (c == quote) {
+                    closingQuote = true; // an apostrophe, then maybe the real closing quote
+                    append(c);
+                    return;
+                }
+            } else if (c == quote) {
+                closingQuote = true;
+                append(c);
+                return;
+            }
+            if (quote != 0) {
+                append(c);
+                checkLength();
+                return;
+            }
+        }
+
+        switch (c) {
+            case '\'', '"' -> {
+                boolean inArgs = parenDepth > 0 && argLists.get(parenDepth - 1);
+                if (inArgs && (lastSignificant == '(' || lastSignificant == ',')) quote = c;
+            }
+            case '(' -> {
+                argLists.set(parenDepth, Character.isLetterOrDigit(lastSignificant) || lastSignificant == '_');
+                parenDepth++;
+            }
+            case ')' -> { if (parenDepth > 0) parenDepth--; }
+            case '[' -> { if (parenDepth == 0) bracketDepth++; }
+            case ']' -> {
+                if (parenDepth == 0 && --bracketDepth == 0) {
+                    emit();
+                    return;
+                }
+            }
+            default -> { }
+        }
+        if (!Character.isWhitespace(c)) lastSignificant = c;
+        append(c);
+        checkLength();
+    }
+
+    private void append(char c) {
+        // Leading whitespace is trimmed as it arrives
+        if (buffer.length() == 0 && Character.isWhitespace(c)) return;
+        buffer.append(c);
+    }
+
+    private void checkLength() {
+        if (buffer.length() > MAX_COMMAND_LENGTH && plainEnd >= 0) {
+            recoverAtPlainEnd();
+        }
+    }
+
+    private void emit() {
+        int end = buffer.length();
+        while (end > 0 && Character.isWhitespace(buffer.charAt(end - 1))) end--;
+        buffer.setLength(end);
+        commands++;
+        try {
+            onCommand.accept(buffer);
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * Emits the command cut at its first "]", then parses the rest of it again as output.
+     */
+    private void recoverAtPlainEnd() {
+        String rest = buffer.substring(plainEnd + 1);
+        buffer.setLength(plainEnd);
+        emit();
+        feed(rest);
+    }
+
+    private void reset() {
+        buffer.setLength(0);
+        inCommand = false;
+        bracketDepth = 0;
+        parenDepth = 0;
+        argLists.clear();
+        quote = 0;
+        closingQuote = false;
+        lastSignificant = 0;
+        plainEnd = -1;
+    }
+}
@@ -0,0 +1,61 @@
+package actions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bracket commands collected while routing model output, applied once routing is done.
+ * Each store (levels, memory, ...) keeps one pending update in the batch that its commands are
+ * merged into, so the store is written once per batch instead of once per command.
+ * Stores are applied in the order their first command arrived. Not thread-safe.
+ */
+public final class CommandBatch {
+
+    private static final class Pending<T> {
+        final T update;
+        final Consumer<? super T> applier;
+
+        Pending(T update, Consumer<? super T> applier) {
+            this.update = update;
+            this.applier = applier;
+        }
+
+        void apply() {
+            applier.accept(update);
+        }
+    }
+
+    private final Map<Class<?>, Pending<?>> pending = new LinkedHashMap<>();
+
+    /**
+     * Returns the batch's pending update of this type, creating it on first use.
+     * @param applier Applies the update to its store when the batch is applied
+     */
+    public <T> T get(Class<T> type, Supplier<T> factory, Consumer<? super T> applier) {
+        Pending<?> existing = pending.get(type);
+        if (existing != null) return type.cast(existing.update);
+        T update = factory.get();
+        pending.put(type, new Pending<>(update, applier));
+        return update;
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Applies every pending update and empties the batch. A failing store does not stop the others.
+     */
+    public void apply() {
+        for (Pending<?> p : pending.values()) {
+            try {
+                p.apply();
+            } catch (Exception e) {
+                System.err.println("Failed to apply " + p.update.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+        pending.clear();
+    }
+}
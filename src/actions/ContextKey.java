@@ -0,0 +1,67 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typed key for an {@link ActionContext} slot. Each key gets a fixed slot index when it is
+ * created, so a lookup is an array access and reads need no cast at the call site.
+ * Keys are interned by name: creating a key twice with the same name returns the same slot.
+ * Shared keys live in {@link ContextKeys}.
+ */
+public final class ContextKey<T> {
+    private static final List<ContextKey<?>> registry = new ArrayList<>();
+
+    private final String name;
+    private final Class<?> type;
+    private final int index;
+
+    private ContextKey(String name, Class<?> type, int index) {
+        this.name = name;
+        this.type = type;
+        this.index = index;
+    }
+
+    /**
+     * Returns the key with this name, creating it if needed.
+     * The type is the erased class of the value, e.g. List.class for a {@code ContextKey<List<String>>}.
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <T> ContextKey<T> of(String name, Class<? super T> type) {
+        for (ContextKey<?> key : registry) {
+            if (key.name.equals(name)) {
+                if (key.type != type) {
+                    throw new IllegalArgumentException("Context key " + name + " already exists with type " + key.type.getSimpleName());
+                }
+                return (ContextKey<T>) key;
+            }
+        }
+        ContextKey<T> key = new ContextKey<>(name, type, registry.size());
+        registry.add(key);
+        return key;
+    }
+
+    /**
+     * Number of keys created so far, i.e. the slot count a context needs.
+     */
+    static synchronized int count() {
+        return registry.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    int index() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,32 @@
+package actions;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Context keys shared between the thinking engine and the actions.
+ */
+public final class ContextKeys {
+
+    // --- Per-tick context ---
+    /** Screenshot captured for this tick. */
+    public static final ContextKey<BufferedImage> SCREENSHOT = ContextKey.of("screenshot", BufferedImage.class);
+    /** Task prompts and DATA payloads contributed by task actions, appended to the unified prompt. */
+    public static final ContextKey<StringBuilder> OTHER_TASK_CONTENT = ContextKey.of("other_task_content", StringBuilder.class);
+    /** Bracket prefixes expected in this tick's model output. Also kept in the global context. */
+    public static final ContextKey<List<String>> EXPECTED_BRACKET_PREFIXES = ContextKey.of("expected_bracket_prefixes", List.class);
+    /** Reasons blocking the default chat this tick, e.g. "cooldown". */
+    public static final ContextKey<List<String>> DEFAULT_CHAT_BLOCKED_BY = ContextKey.of("DefaultChatBlockedBy", List.class);
+    /** Whether screen_analysis will run this tick, so tasks know whether their content is unified into it. */
+    public static final ContextKey<Boolean> WILL_RUN_SCREEN_ANALYSIS = ContextKey.of("will_run_screen_analysis", Boolean.class);
+    /** The global context, for cross-tick data. */
+    public static final ContextKey<ActionContext> GLOBAL_CONTEXT = ContextKey.of("global_context", ActionContext.class);
+
+    // --- Global context ---
+    public static final ContextKey<ActionManager> ACTION_MANAGER = ContextKey.of("action_manager", ActionManager.class);
+    /** Raw model outputs waiting for their bracket sections to be routed; drained by the side-effect thread. */
+    public static final ContextKey<MpscQueue<QueuedModelOutput>> RAW_MODEL_OUTPUT_QUEUE = ContextKey.of("raw_model_output_queue", MpscQueue.class);
+
+    private ContextKeys() {
+    }
+}
@@ -0,0 +1,47 @@
+package actions;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Cheap estimate of how much two screenshots differ, from a coarse grid of sampled pixels.
+ * Good enough to tell "same window, a cursor moved" from "the user switched to something else".
+ */
+public class FrameDiff {
+    private static final int GRID_COLUMNS = 32;
+    private static final int GRID_ROWS = 18;
+    // Luma difference (0-255) above which a sample counts as changed
+    private static final int LUMA_THRESHOLD = 24;
+
+    /**
+     * Fraction (0..1) of sampled points whose brightness changed noticeably.
+     * Missing frames count as completely different. Frames of different sizes are compared
+     * at the same relative positions.
+     */
+    public static double changedFraction(BufferedImage a, BufferedImage b) {
+        if (a == null || b == null) return 1.0;
+        if (a == b) return 0.0;
+        int changed = 0;
+        for (int row = 0; row < GRID_ROWS; row++) {
+            for (int col = 0; col < GRID_COLUMNS; col++) {
+                // Sample at cell centres so borders and taskbars do not dominate
+                int lumaA = luma(a.getRGB(sampleX(a, col), sampleY(a, row)));
+                int lumaB = luma(b.getRGB(sampleX(b, col), sampleY(b, row)));
+                if (Math.abs(lumaA - lumaB) > LUMA_THRESHOLD) changed++;
+            }
+        }
+        return changed / (double) (GRID_COLUMNS * GRID_ROWS);
+    }
+
+    private static int sampleX(BufferedImage image, int col) {
+        return (int) ((col + 0.5) * image.getWidth() / GRID_COLUMNS);
+    }
+
+    private static int sampleY(BufferedImage image, int row) {
+        return (int) ((row + 0.5) * image.getHeight() / GRID_ROWS);
+    }
+
+    private static int luma(int rgb) {
+        int r = (rgb >> 16) & 0xff, g = (rgb >> 8) & 0xff, b = rgb & 0xff;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+}
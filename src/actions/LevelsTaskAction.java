@@ -13,6 +13,7 @@ import java.util.Map;
  */
 public class LevelsTaskAction implements BracketAwareAction {
     private static final Gson GSON = new Gson();
+    private static final java.nio.file.Path PROMPTS_PATH = java.nio.file.Path.of("data", "levels", "prompts.json");
 
     @Override
     public String getActionId() {
@@ -29,6 +30,17 @@ public class LevelsTaskAction implements BracketAwareAction {
         return true; // Always able to contribute the task
     }
 
+    @Override
+    public java.util.Set<ContextKey<?>> getOutputs() {
+        return java.util.Set.of(ContextKeys.OTHER_TASK_CONTENT);
+    }
+
+    @Override
+    public Object getInputFingerprint(ActionContext context) {
+        // Output depends only on the levels data and the prompt file
+        return java.util.List.of(LevelManager.getVersion(), PROMPTS_PATH.toFile().lastModified());
+    }
+
     @Override
     public ActionResult execute(ActionContext context) {
         // Build the dynamic payload containing attributes and skills
@@ -41,11 +53,11 @@ public class LevelsTaskAction implements BracketAwareAction {
         payload.put("attributes_xp", LevelManager.getAttributeXp());
 
         // Compose content strictly from configuration files and data; SA will just append this
-        StringBuilder other = context.contains("other_task_content") ? context.get("other_task_content", StringBuilder.class) : new StringBuilder();
+        StringBuilder other = context.contains(ContextKeys.OTHER_TASK_CONTENT) ? context.get(ContextKeys.OTHER_TASK_CONTENT) : new StringBuilder();
 
         // data/levels/prompts.json sections
         try {
-            java.nio.file.Path p = java.nio.file.Path.of("data", "levels", "prompts.json");
+            java.nio.file.Path p = PROMPTS_PATH;
             if (java.nio.file.Files.exists(p)) {
                 String content = java.nio.file.Files.readString(p);
                 JsonObject obj = com.google.gson.JsonParser.parseString(content).getAsJsonObject();
@@ -59,7 +71,7 @@ public class LevelsTaskAction implements BracketAwareAction {
         data.add("levels", com.google.gson.JsonParser.parseString(GSON.toJson(payload)));
         other.append("DATA (JSON): ").append(data.toString()).append("\n");
 
-        context.put("other_task_content", other);
+        context.put(ContextKeys.OTHER_TASK_CONTENT, other);
         return ActionResult.success("Levels task content added");
     }
 
@@ -71,6 +83,13 @@ public class LevelsTaskAction implements BracketAwareAction {
 
     @Override
     public void handleBracket(String content, ActionContext context) {
+        CommandBatch batch = new CommandBatch();
+        handleBracket(content, context, batch);
+        batch.apply();
+    }
+
+    @Override
+    public void handleBracket(String content, ActionContext context, CommandBatch batch) {
         try {
             String lower = content; // case-sensitive check required by spec
             if (!lower.startsWith("levels:")) return;
@@ -85,7 +104,7 @@ public class LevelsTaskAction implements BracketAwareAction {
                     String arg = cmd.substring(lp + 1, rp).trim();
                     String skill = stripQuotes(arg);
                     System.out.println("Dispatch: levels.addExpOnSkill(" + skill + ")");
-                    levels.LevelManager.addExpOnSkill(skill, 1);
+                    levelUpdate(batch).addExpOnSkill(skill, 1);
                 }
             } else if (cmd.startsWith("add_skill")) {
                 int lp = cmd.indexOf('('), rp = cmd.lastIndexOf(')');
@@ -95,12 +114,17 @@ public class LevelsTaskAction implements BracketAwareAction {
                     String skill = parts.length > 0 ? stripQuotes(parts[0].trim()) : null;
                     String attr = parts.length > 1 ? stripQuotes(parts[1].trim()) : null;
                     System.out.println("Dispatch: levels.addSkill(" + skill + ", " + attr + ")");
-                    levels.LevelManager.addSkill(skill, attr);
+                    levelUpdate(batch).addSkill(skill, attr);
                 }
             }
         } catch (Exception ignored) {}
     }
 
+    // One update per batch, so all of an output's levels commands are saved together
+    private static levels.LevelUpdate levelUpdate(CommandBatch batch) {
+        return batch.get(levels.LevelUpdate.class, levels.LevelUpdate::new, levels.LevelManager::apply);
+    }
+
     private String stripQuotes(String s) {
         if (s == null) return null;
         if ((s.startsWith("\"") && s.endsWith("\"")) || (s.startsWith("'") && s.endsWith("'"))) {
@@ -14,6 +14,7 @@ import java.util.Map;
  */
 public class MemoryTaskAction implements BracketAwareAction {
     private static final String ID = "memory_task";
+    private static final String PROMPTS_FILE = "data/memory/prompts.json";
 
     @Override
     public String getActionId() {
@@ -30,6 +31,25 @@ public class MemoryTaskAction implements BracketAwareAction {
         return AppState.isRunning; // lightweight
     }
 
+    @Override
+    public java.util.Set<ContextKey<?>> getOutputs() {
+        return java.util.Set.of(ContextKeys.OTHER_TASK_CONTENT);
+    }
+
+    @Override
+    public ActionSchedule getSchedule() {
+        return ActionSchedule.every(5); // memory maintenance every 5 ticks
+    }
+
+    @Override
+    public Object getInputFingerprint(ActionContext context) {
+        return java.util.Arrays.asList(
+                new java.util.ArrayList<>(PersonalityManager.getLastResponses()),
+                java.util.Objects.toString(config.MemoryStore.getShortTerm()),
+                java.util.Objects.toString(config.MemoryStore.getLongTerm()),
+                new File(PROMPTS_FILE).lastModified());
+    }
+
     @Override
     public ActionResult execute(ActionContext context) {
         try {
@@ -45,17 +65,17 @@ public class MemoryTaskAction implements BracketAwareAction {
             data.put("short_term_memory", config.MemoryStore.getShortTerm());
             data.put("long_term_memory", config.MemoryStore.getLongTerm());
 
-            boolean willRunSA = context.contains("will_run_screen_analysis") && Boolean.TRUE.equals(context.get("will_run_screen_analysis", Boolean.class));
+            boolean willRunSA = Boolean.TRUE.equals(context.get(ContextKeys.WILL_RUN_SCREEN_ANALYSIS));
 
             // ALWAYS prepare the content - needed for both unified prompt AND tasks-only request
-            StringBuilder sb = context.contains("other_task_content") ? context.get("other_task_content", StringBuilder.class) : new StringBuilder();
+            StringBuilder sb = context.get(ContextKeys.OTHER_TASK_CONTENT);
             if (sb == null) sb = new StringBuilder();
             sb.append(instructions).append('\n');
             // Standardized payload label
             com.google.gson.JsonObject wrapper = new com.google.gson.JsonObject();
             wrapper.add("memory", new com.google.gson.Gson().toJsonTree(data));
             sb.append("DATA (JSON): ").append(wrapper.toString()).append('\n');
-            context.put("other_task_content", sb);
+            context.put(ContextKeys.OTHER_TASK_CONTENT, sb);
 
             if (willRunSA) {
                 return ActionResult.success("memory task prepared for unified prompt");
@@ -68,7 +88,7 @@ public class MemoryTaskAction implements BracketAwareAction {
     }
 
     private String loadMemoryPrompts() {
-        File f = new File("data/memory/prompts.json");
+        File f = new File(PROMPTS_FILE);
         if (!f.exists()) return null;
         try (FileReader r = new FileReader(f)) {
             java.util.Map<?,?> m = new Gson().fromJson(r, java.util.Map.class);
@@ -93,6 +113,13 @@ public class MemoryTaskAction implements BracketAwareAction {
 
     @Override
     public void handleBracket(String content, ActionContext context) {
+        CommandBatch batch = new CommandBatch();
+        handleBracket(content, context, batch);
+        batch.apply();
+    }
+
+    @Override
+    public void handleBracket(String content, ActionContext context, CommandBatch batch) {
         if (content == null || !content.startsWith("memory:")) return;
         String cmd = content.substring("memory:".length()).trim();
         if (cmd.startsWith("write_short_term")) {
@@ -100,20 +127,25 @@ public class MemoryTaskAction implements BracketAwareAction {
             if (lp != -1 && rp > lp) {
                 String payload = cmd.substring(lp + 1, rp).trim();
                 payload = stripWrappingQuotes(payload);
-                config.MemoryStore.setShortTerm(payload);
-                System.out.println("Dispatch: memory.write_short_term updated.");
+                memoryUpdate(batch).writeShortTerm(payload);
+                System.out.println("Dispatch: memory.write_short_term queued.");
             }
         } else if (cmd.startsWith("write_long_term")) {
             int lp = cmd.indexOf('('), rp = cmd.lastIndexOf(')');
             if (lp != -1 && rp > lp) {
                 String payload = cmd.substring(lp + 1, rp).trim();
                 payload = stripWrappingQuotes(payload);
-                config.MemoryStore.setLongTerm(payload);
-                System.out.println("Dispatch: memory.write_long_term updated.");
+                memoryUpdate(batch).writeLongTerm(payload);
+                System.out.println("Dispatch: memory.write_long_term queued.");
             }
         }
     }
 
+    // One update per batch: the last write to each memory wins and userMemory.json is saved once
+    private static config.MemoryUpdate memoryUpdate(CommandBatch batch) {
+        return batch.get(config.MemoryUpdate.class, config.MemoryUpdate::new, config.MemoryStore::apply);
+    }
+
     private String stripWrappingQuotes(String s) {
         if (s == null) return null;
         if ((s.startsWith("\"") && s.endsWith("\"")) || (s.startsWith("'") && s.endsWith("'"))) {
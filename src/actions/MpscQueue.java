@@ -0,0 +1,79 @@
+package actions;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Unbounded lock-free queue for many producers and a single consumer (Vyukov's intrusive MPSC
+ * design). Producers only swap the head and link the previous node, so offer() never blocks
+ * or retries; the consumer walks the links without any atomic operation.
+ *
+ * Only one thread at a time may call poll() or drain(). An item whose producer has swapped the
+ * head but not linked it yet is invisible for that instant; the producer's subsequent wake-up
+ * of the consumer picks it up, so nothing is lost.
+ */
+public class MpscQueue<T> {
+
+    private static final class Node<T> {
+        volatile Node<T> next;
+        T value;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    // Most recently offered node; producers swap this
+    private final AtomicReference<Node<T>> head;
+    // Last consumed node (a stub); only the consumer touches this
+    private Node<T> tail;
+
+    public MpscQueue() {
+        Node<T> stub = new Node<>(null);
+        head = new AtomicReference<>(stub);
+        tail = stub;
+    }
+
+    /**
+     * Adds an item. Safe to call from any number of threads.
+     */
+    public void offer(T value) {
+        if (value == null) throw new NullPointerException("value");
+        Node<T> node = new Node<>(value);
+        Node<T> previous = head.getAndSet(node);
+        previous.next = node;
+    }
+
+    /**
+     * Removes the oldest visible item, or returns null. Consumer thread only.
+     */
+    public T poll() {
+        Node<T> next = tail.next;
+        if (next == null) return null;
+        T value = next.value;
+        next.value = null; // the node becomes the new stub
+        tail = next;
+        return value;
+    }
+
+    /**
+     * Hands up to {@code limit} items to {@code sink}, oldest first. Returns how many were drained.
+     * Consumer thread only.
+     */
+    public int drain(Consumer<? super T> sink, int limit) {
+        int drained = 0;
+        T value;
+        while (drained < limit && (value = poll()) != null) {
+            sink.accept(value);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * True if no item is visible to the consumer. A concurrent offer may make this stale at once.
+     */
+    public boolean isEmpty() {
+        return tail.next == null;
+    }
+}
@@ -0,0 +1,120 @@
+package actions;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Tracks recent thinking-cycle latencies and steps the request quality down when the
+ * p95 exceeds the configured target, and back up once latency recovers.
+ * Levels, from best to cheapest:
+ *  - FULL: full resolution screenshot, configured model
+ *  - REDUCED_RESOLUTION: screenshot downscaled before it is sent
+ *  - CACHED_DESCRIPTION: text-only prompt using the last vision description
+ *  - SMALL_MODEL: text-only prompt on the smaller local language model
+ *  - SKIP: cycles are skipped, with a periodic probe one level up
+ */
+public class QualityLadder {
+
+    public enum Level {
+        FULL,
+        REDUCED_RESOLUTION,
+        CACHED_DESCRIPTION,
+        SMALL_MODEL,
+        SKIP
+    }
+
+    private static final int WINDOW_SIZE = 20;
+    // Samples needed at the current level before another step is taken
+    private static final int MIN_SAMPLES = 3;
+    // Step back up only when p95 is comfortably below the target
+    private static final double RECOVERY_RATIO = 0.6;
+    // While skipping, probe the next level up after this many skipped cycles
+    private static final int SKIP_PROBE_INTERVAL = 3;
+    private static final int REDUCED_MAX_WIDTH = 1280;
+
+    private final long[] samples = new long[WINDOW_SIZE];
+    private int sampleCount = 0;
+    private int nextSample = 0;
+    private int skippedCycles = 0;
+    private volatile Level level = Level.FULL;
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Records the latency of a finished cycle and adjusts the level if needed.
+     */
+    public synchronized void recordCycle(long latencyMs, long targetMs) {
+        samples[nextSample] = latencyMs;
+        nextSample = (nextSample + 1) % WINDOW_SIZE;
+        if (sampleCount < WINDOW_SIZE) sampleCount++;
+        if (sampleCount < MIN_SAMPLES || targetMs <= 0) return;
+
+        long p95 = percentile95();
+        if (p95 > targetMs && level != Level.SKIP) {
+            changeLevel(Level.values()[level.ordinal() + 1], p95, targetMs);
+        } else if (p95 < targetMs * RECOVERY_RATIO && level != Level.FULL) {
+            changeLevel(Level.values()[level.ordinal() - 1], p95, targetMs);
+        }
+    }
+
+    /**
+     * Returns true if this cycle should be skipped. While at SKIP, every few skipped
+     * cycles the ladder steps up one level so latency can be measured again.
+     */
+    public synchronized boolean shouldSkipCycle() {
+        if (level != Level.SKIP) return false;
+        if (++skippedCycles >= SKIP_PROBE_INTERVAL) {
+            System.out.println("[Quality] Probing backend latency after " + skippedCycles + " skipped cycles");
+            setLevel(Level.SMALL_MODEL);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the p95 of the current window in milliseconds, or 0 when empty.
+     */
+    public synchronized long getP95() {
+        return sampleCount == 0 ? 0 : percentile95();
+    }
+
+    private long percentile95() {
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(0.95 * sorted.length) - 1;
+        return sorted[Math.max(0, idx)];
+    }
+
+    private void changeLevel(Level next, long p95, long targetMs) {
+        System.out.println("[Quality] p95 " + p95 + "ms vs target " + targetMs + "ms: " + level + " -> " + next);
+        setLevel(next);
+    }
+
+    private void setLevel(Level next) {
+        level = next;
+        // Evaluate the new level on fresh samples only
+        sampleCount = 0;
+        nextSample = 0;
+        skippedCycles = 0;
+    }
+
+    /**
+     * Downscales the image so its width is at most 1280px, keeping the aspect ratio.
+     */
+    public static BufferedImage downscale(BufferedImage image) {
+        if (image == null || image.getWidth() <= REDUCED_MAX_WIDTH) return image;
+        double scale = (double) REDUCED_MAX_WIDTH / image.getWidth();
+        int w = REDUCED_MAX_WIDTH;
+        int h = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, w, h, null);
+        g.dispose();
+        return out;
+    }
+}
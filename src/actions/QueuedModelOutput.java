@@ -0,0 +1,28 @@
+package actions;
+
+import java.util.List;
+
+/**
+ * A raw model output waiting for its bracket sections to be routed, together with the bracket
+ * prefixes its own tick expected (the global entry has usually moved on by then).
+ */
+public final class QueuedModelOutput {
+    private final String raw;
+    private final List<String> expectedPrefixes;
+
+    public QueuedModelOutput(String raw, List<String> expectedPrefixes) {
+        this.raw = raw;
+        this.expectedPrefixes = expectedPrefixes;
+    }
+
+    public String getRaw() {
+        return raw;
+    }
+
+    /**
+     * Nullable.
+     */
+    public List<String> getExpectedPrefixes() {
+        return expectedPrefixes;
+    }
+}
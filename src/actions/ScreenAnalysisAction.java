@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import api.RequestScope;
+import api.SpeechService;
 import api.TtsApiClient;
 import config.ConfigurationManager;
 import personality.PersonalityManager;
@@ -20,6 +22,7 @@ public class ScreenAnalysisAction implements Action {
     private final AtomicBoolean isProcessing = new AtomicBoolean(false);
     private volatile String currentUnifiedPrompt = null;
     private volatile ActionContext currentGlobalContext = null;
+    private volatile List<String> currentExpectedPrefixes = null;
 
     @Override
     public String getActionId() {
@@ -36,6 +39,23 @@ public class ScreenAnalysisAction implements Action {
     return AppState.isRunning && !isProcessing.get();
     }
 
+    @Override
+    public java.util.Set<ContextKey<?>> getInputs() {
+        // Consumes what the capture stage produced; has no outputs, so it runs in the inference stage
+        return java.util.Set.of(ContextKeys.SCREENSHOT, ContextKeys.OTHER_TASK_CONTENT, ContextKeys.EXPECTED_BRACKET_PREFIXES);
+    }
+
+    @Override
+    public ActionSchedule getSchedule() {
+        // Chat cadence follows the chat frequency setting (frequent/medium/scarse)
+        return ActionSchedule.every(AppState.getChatFrequencyDivisor());
+    }
+
+    @Override
+    public long getEstimatedCostMs() {
+        return 5000; // a full vision model round trip
+    }
+
     @Override
     public ActionResult execute(ActionContext context) {
         if (!canExecute(context)) {
@@ -48,7 +68,7 @@ public class ScreenAnalysisAction implements Action {
 
         try {
             // Get screenshot from context (provided by ThinkingEngine)
-            BufferedImage screenshot = context.get("screenshot", BufferedImage.class);
+            BufferedImage screenshot = context.get(ContextKeys.SCREENSHOT);
             if (screenshot == null) {
                 return ActionResult.failure("No screenshot provided in context");
             }
@@ -72,13 +92,12 @@ public class ScreenAnalysisAction implements Action {
                 screenshotBuffer.clear();
             }
 
-            // Mark global processing state so the thinking loop can pause while we work
-            AppState.isActionProcessing = true;
-
             // Collect any additional task content contributed by other actions for this run
             currentUnifiedPrompt = getOtherTaskContent(context);
             // Capture global context for bracket routing
-            currentGlobalContext = context.contains("global_context") ? context.get("global_context", ActionContext.class) : null;
+            currentGlobalContext = context.get(ContextKeys.GLOBAL_CONTEXT);
+            // Prefixes expected for this frame; the global entry may already belong to a newer tick
+            currentExpectedPrefixes = context.get(ContextKeys.EXPECTED_BRACKET_PREFIXES);
 
             // Process synchronously since ThinkingEngine already controls the flow
             try {
@@ -90,7 +109,6 @@ public class ScreenAnalysisAction implements Action {
                 return ActionResult.failure("Error during screen analysis: " + e.getMessage());
             } finally {
                 isProcessing.set(false);
-                AppState.isActionProcessing = false;
             }
 
         } catch (Exception e) {
@@ -99,7 +117,6 @@ public class ScreenAnalysisAction implements Action {
         }
     }
 
-    @SuppressWarnings("unchecked")
     private void processAndRespond(BufferedImage image) throws Exception {
         String selectedTtsVoice = AppState.selectedTtsCharacterVoice;
         String selectedLanguage = AppState.selectedLanguage;
@@ -127,30 +144,44 @@ public class ScreenAnalysisAction implements Action {
         }
 
         // Get expected bracket prefixes from global context if available
-        List<String> expectedBracketPrefixes = null;
+        List<String> expectedBracketPrefixes = currentExpectedPrefixes;
         ActionContext global = currentGlobalContext;
-        if (global != null && global.contains("expected_bracket_prefixes")) {
-            expectedBracketPrefixes = (List<String>) global.get("expected_bracket_prefixes", List.class);
+        if (expectedBracketPrefixes == null && global != null) {
+            expectedBracketPrefixes = global.get(ContextKeys.EXPECTED_BRACKET_PREFIXES);
         }
-        ActionManager am = (global != null && global.contains("action_manager")) ? global.get("action_manager", ActionManager.class) : null;
+        ActionManager am = global != null ? global.get(ContextKeys.ACTION_MANAGER) : null;
         java.util.Collection<Action> actions = (am != null) ? am.getRegisteredActions() : java.util.List.of();
 
-        // Use ThinkingEngine helper for model execution and bracket routing
-        String rawModelOutput = null;
+        // Use ThinkingEngine helper for model execution and bracket routing. Speech is queued from the
+        // callback as soon as the output is in; memory/levels side effects are routed after it, off this thread.
         try {
-            rawModelOutput = ThinkingEngine.runImageAwarePromptFlow(image, prompt, expectedBracketPrefixes, actions, global);
+            ThinkingEngine.runImageAwarePromptFlow(image, prompt, expectedBracketPrefixes, actions, global,
+                    rawModelOutput -> respond(rawModelOutput, selectedTtsVoice, selectedLanguage));
         } catch (Exception e) {
             System.err.println("Error during image-aware prompt flow: " + e.getMessage());
         }
+    }
 
+    /**
+     * Speaks the [speak:(...)] sections of the model output and records them in memory.
+     */
+    private void respond(String rawModelOutput, String selectedTtsVoice, String selectedLanguage) {
         String finalResponseToSpeak = parseFinalResponse(rawModelOutput);
+        // The answer is about the frame this cycle captured; past its deadline that screen is likely gone
+        RequestScope scope = RequestScope.current();
+        if (finalResponseToSpeak != null && scope != null && !scope.isActive()) {
+            System.out.println("Dropped stale response (" + scope.getCancelReason() + ", " + scope.getAgeMs() + " ms after capture): " + finalResponseToSpeak);
+            return;
+        }
         if (finalResponseToSpeak != null && !finalResponseToSpeak.isBlank()) {
             System.out.println("Spoken (after stripping brackets): " + finalResponseToSpeak);
             System.out.println("Speaking: " + finalResponseToSpeak);
 
             if (AppState.useTTS()) {
-                // Speak the response - TtsApiClient will handle UI updates automatically
-                TtsApiClient.speak(finalResponseToSpeak, selectedTtsVoice, 1.0, selectedLanguage);
+                // Queue the response without waiting; playback drives the UI updates and
+                // the next cycle can be prepared while this line is spoken
+                long notAfter = scope != null ? scope.getDeadline() : Long.MAX_VALUE;
+                SpeechService.submit(finalResponseToSpeak, selectedTtsVoice, 1.0, selectedLanguage, SpeechService.Priority.NORMAL, notAfter);
             } else {
                 // TTS disabled: just show the speech bubble temporarily without audio
                 final api.TtsApiClient.UICallback cb = TtsApiClient.getUICallback();
@@ -219,8 +250,7 @@ public class ScreenAnalysisAction implements Action {
     // Retrieve additional task content contributed by other actions; SA does not assemble or duplicate prompts
     private String getOtherTaskContent(ActionContext context) {
         if (context == null) return "";
-        if (!context.contains("other_task_content")) return "";
-        StringBuilder sb = context.get("other_task_content", StringBuilder.class);
+        StringBuilder sb = context.get(ContextKeys.OTHER_TASK_CONTENT);
         return sb != null ? sb.toString() : "";
     }
 
@@ -230,12 +260,9 @@ public class ScreenAnalysisAction implements Action {
     private String collectSpeakSections(String s) {
         if (s == null || s.isEmpty()) return "";
         StringBuilder preferred = new StringBuilder();
-        int idx = 0;
-        int preferredCount = 0;
-        while ((idx = s.indexOf('[', idx)) != -1) {
-            int end = s.indexOf(']', idx + 1);
-            if (end == -1) break;
-            String inside = s.substring(idx + 1, end).trim();
+        int[] preferredCount = {0};
+        BracketStreamParser parser = new BracketStreamParser(section -> {
+            String inside = section.toString();
             if (inside.startsWith("speak:")) {
                 // Extract speak payload inside parentheses if present: speak:(content)
                 int lp = inside.indexOf('('), rp = inside.lastIndexOf(')');
@@ -244,12 +271,13 @@ public class ScreenAnalysisAction implements Action {
                         : inside.substring("speak:".length()).trim();
                 if (preferred.length() > 0) preferred.append(' ');
                 preferred.append(payload);
-                preferredCount++;
+                preferredCount[0]++;
             }
-            idx = end + 1;
-        }
-        if (preferredCount > 0) {
-            System.out.println("Collected " + preferredCount + " [speak:(...)] section(s).");
+        });
+        parser.feed(s);
+        parser.finish();
+        if (preferredCount[0] > 0) {
+            System.out.println("Collected " + preferredCount[0] + " [speak:(...)] section(s).");
             return preferred.toString();
         }
         return "";
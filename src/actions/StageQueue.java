@@ -0,0 +1,78 @@
+package actions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded hand-off between two stages of the thinking pipeline.
+ * The producer never blocks: when the queue is full, the oldest waiting item is dropped,
+ * since a newer frame makes it stale. The consumer blocks until work arrives.
+ */
+public class StageQueue<T> {
+    private final String name;
+    private final int capacity;
+    private final ArrayDeque<T> items = new ArrayDeque<>();
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public StageQueue(String name, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+        this.name = name;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds an item, returning the stale item it displaced, or null if there was room.
+     */
+    public T offer(T item) {
+        return offer(item, null);
+    }
+
+    /**
+     * Same as above; {@code onDisplaced} is called with the displaced item and its replacement
+     * before the replacement becomes visible to the consumer, so the replacement can take over
+     * whatever the displaced item carried that it lacks.
+     */
+    public synchronized T offer(T item, BiConsumer<T, T> onDisplaced) {
+        offered.incrementAndGet();
+        T displaced = null;
+        if (items.size() >= capacity) {
+            displaced = items.pollFirst();
+            dropped.incrementAndGet();
+            if (onDisplaced != null) onDisplaced.accept(displaced, item);
+        }
+        items.addLast(item);
+        notifyAll();
+        return displaced;
+    }
+
+    /**
+     * Waits for and removes the oldest item.
+     */
+    public synchronized T take() throws InterruptedException {
+        while (items.isEmpty()) {
+            wait();
+        }
+        return items.pollFirst();
+    }
+
+    public synchronized boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * Removes every waiting item and returns them, oldest first, so the caller can release them.
+     */
+    public synchronized List<T> clear() {
+        List<T> removed = new ArrayList<>(items);
+        items.clear();
+        return removed;
+    }
+
+    public String getStats() {
+        return name + " queue: " + offered.get() + " offered, " + dropped.get() + " dropped as stale";
+    }
+}
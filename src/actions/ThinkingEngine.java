@@ -4,8 +4,13 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import core.ActivitySampler;
 import core.AppState;
+import api.RequestScope;
 
 /**
  * The thinking engine that analyzes the current situation and decides which actions to execute.
@@ -14,10 +19,43 @@ import core.AppState;
 public class ThinkingEngine {
 
     private final ActionManager actionManager;
+    private final ActionGraph actionGraph;
+    // Decides which ticks each action runs on; shared by the action graph and the chat decision
+    private final ActionScheduler scheduler = new ActionScheduler();
+    // Per-tick contexts: at most one being prepared, one queued and one being inferred
+    private final ActionContextPool contextPool = new ActionContextPool(3);
     private final AtomicBoolean isThinking = new AtomicBoolean(false);
+    // Capture stage -> inference stage; holds at most one prepared frame waiting for the backend
+    private final StageQueue<InferenceJob> inferenceQueue = new StageQueue<>("inference", 1);
+    private Thread inferenceWorker;
+    // A cycle's backend work must finish within this many tick intervals of its capture
+    private static final int DEADLINE_TICKS = 3;
+    private static final long MIN_CYCLE_BUDGET_MS = 20000;
+    // A new frame differing from the one being inferred by at least this fraction cancels it
+    private static final double SCENE_CHANGE_FRACTION = 0.3;
+    // Frame whose model request is running right now, if any
+    private volatile InferenceJob activeJob = null;
+
+    // Shared by the static prompt flow; degrades request quality when backends are slow
+    private static final QualityLadder qualityLadder = new QualityLadder();
+    // Routes [memory:...]/[levels:...] side effects in order, after speech has been queued
+    private static final ExecutorService sideEffectExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "bracket-side-effects");
+        t.setDaemon(true);
+        return t;
+    });
+    // Outputs routed per pass on the side-effect thread before it yields to other side effects
+    private static final int ROUTING_BATCH = 16;
+    // Last description produced by the vision model, reused by text-only ladder levels
+    private static volatile String lastVisionDescription = null;
+    private static volatile long lastVisionDescriptionAt = 0;
+    // Older descriptions no longer match the screen; the next cycle sends the screenshot again
+    private static final long VISION_DESCRIPTION_MAX_AGE_MS = 60000;
 
     public ThinkingEngine(ActionManager actionManager) {
         this.actionManager = actionManager;
+        this.actionGraph = new ActionGraph(actionManager, scheduler);
+        actionManager.getGlobalContext().put(ContextKeys.RAW_MODEL_OUTPUT_QUEUE, new MpscQueue<>());
     }
 
     /**
@@ -25,13 +63,16 @@ public class ThinkingEngine {
      * This is called periodically by the scheduler.
      */
     public void think() {
-        // If an action is still processing or TTS is speaking, skip this cycle entirely
-        if (AppState.isActionProcessing || AppState.isSpeaking) {
-            return;
-        }
+        // Capture and preparation run on every tick, even while the previous frame is still
+        // being inferred or spoken; the stage queues between them drop whatever falls behind.
         if (!isThinking.compareAndSet(false, true)) {
             return; // Already thinking, skip this cycle
         }
+        if (qualityLadder.shouldSkipCycle()) {
+            System.out.println("[Quality] Skipping cycle, backend p95 above target");
+            isThinking.set(false);
+            return;
+        }
 
         try {
             analyzeSituationAndAct();
@@ -44,96 +85,239 @@ public class ThinkingEngine {
     }
 
     /**
-     * Analyzes the current situation and decides which actions to execute.
-     * For now, this simply executes the screen analysis action, but in the future
-     * this could become much more sophisticated with different decision trees.
+     * Capture stage: analyzes the current situation, runs the contributing tasks and decides what
+     * to ask the model, then hands the prepared frame to the inference stage without waiting for it.
      */
     private void analyzeSituationAndAct() {
-        ActionContext context = new ActionContext();
+        // Per-tick contexts are recycled; one handed to the inference stage is released there
+        ActionContext context = contextPool.acquire();
+        boolean handedOff = false;
+        try {
+            handedOff = prepareFrame(context);
+        } finally {
+            if (!handedOff) contextPool.release(context);
+        }
+    }
+
+    /**
+     * Fills the tick context and queues it for inference. Returns false if there was nothing to infer.
+     */
+    private boolean prepareFrame(ActionContext context) {
         // Make global context available to actions for cross-tick data sharing
         ActionContext global = actionManager.getGlobalContext();
-        context.put("global_context", global);
-        context.put("action_manager", actionManager);
+        context.put(ContextKeys.GLOBAL_CONTEXT, global);
+        context.put(ContextKeys.ACTION_MANAGER, actionManager);
         // Also expose in the global context so actions that only retain the global reference can resolve it
-        try { global.put("action_manager", actionManager); } catch (Throwable ignored) {}
+        global.put(ContextKeys.ACTION_MANAGER, actionManager);
 
-        // 1) Flush any queued raw model outputs from previous cycles and route bracket commands
-        try {
-            @SuppressWarnings("unchecked")
-            java.util.List<String> queued = global.get("raw_model_output_queue", java.util.List.class);
-            if (queued != null && !queued.isEmpty()) {
-                // Copy then clear
-                java.util.List<String> copy = new java.util.ArrayList<>(queued);
-                queued.clear();
-                // Collect expected bracket prefixes for this tick (if any)
-                @SuppressWarnings("unchecked")
-                java.util.List<String> expectedPrefixes = (java.util.List<String>) global.get("expected_bracket_prefixes", java.util.List.class);
-                for (String raw : copy) {
-                    routeBracketSections(raw, actionManager.getRegisteredActions(), global, expectedPrefixes);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error routing queued bracket sections: " + e.getMessage());
-        }
-        int divisor = AppState.getChatFrequencyDivisor();
+        // 1) Make sure raw model outputs from previous cycles have had their bracket commands routed
+        requestRouting(global, actionManager.getRegisteredActions());
 
-        // Determine if this tick should trigger a chat based on frequency
-        boolean shouldChatThisTick = divisor <= 1 || (AppState.tickCounter % divisor == 0);
+        // Increment global tick counter at each analysis cycle
+        long tick = ++AppState.tickCounter;
+        System.err.println("Current Tick: " + tick);
+
+        // Determine if this tick should trigger a chat, from screen_analysis' schedule (chat frequency)
+        Action screenAnalysis = actionManager.getAction("screen_analysis");
+        boolean shouldChatThisTick = screenAnalysis == null || scheduler.skipReason(screenAnalysis, context, tick) == null;
 
         // Initialize a shared list to track reasons that block the default chat this tick
         // Other actions may append reasons like "levels", "cooldown", etc.
-        @SuppressWarnings("unchecked")
-        List<String> defaultChatBlockedBy = (List<String>) context.get("DefaultChatBlockedBy", List.class);
+        List<String> defaultChatBlockedBy = context.get(ContextKeys.DEFAULT_CHAT_BLOCKED_BY);
         if (defaultChatBlockedBy == null) {
             defaultChatBlockedBy = new ArrayList<>();
-            context.put("DefaultChatBlockedBy", defaultChatBlockedBy);
+            context.put(ContextKeys.DEFAULT_CHAT_BLOCKED_BY, defaultChatBlockedBy);
         }
 
         // Inform memory_task whether screen_analysis will run this tick, so it can decide to unify or run standalone
         boolean willRunScreenAnalysis = defaultChatBlockedBy.isEmpty() && shouldChatThisTick;
-        context.put("will_run_screen_analysis", willRunScreenAnalysis);
+        context.put(ContextKeys.WILL_RUN_SCREEN_ANALYSIS, willRunScreenAnalysis);
 
-        // Increment global tick counter at each analysis cycle
-        AppState.tickCounter++;
-        System.err.println("Current Tick: " + AppState.tickCounter);
         // Capture screenshot first - this will be used by multiple actions
+        long capturedAt = System.currentTimeMillis();
         BufferedImage screenshot = captureScreenshot();
         if (screenshot != null) {
-            context.put("screenshot", screenshot);
+            context.put(ContextKeys.SCREENSHOT, screenshot);
+        }
+        // Nobody is looking: the frame only serves to notice the user coming back
+        ActivitySampler.reportFrame(screenshot);
+        if (ActivitySampler.isIdle()) {
+            System.out.println("[Activity] User idle; skipping model work this tick");
+            return false;
         }
 
         // Brain actions, maintenance actions should come first.
 
         // Prepare expected bracket prefixes for this tick
         java.util.List<String> expectedBracketPrefixes = new java.util.ArrayList<>();
-        // levels_task contributes level system task.
-        if (actionManager.hasAction("levels_task")) {
-            ActionResult r = actionManager.executeAction("levels_task", context);
-            if (r.isFailure()) {
-                System.err.println("levels_task failed: " + r.getMessage());
-            } else {
-                // Add levels: prefix for this tick
-                expectedBracketPrefixes.addAll(((BracketAwareAction)actionManager.getRegisteredActions().stream().filter(a -> a.getActionId().equals("levels_task")).findFirst().orElse(null)).getBracketPrefixes());
+        // Task content each producer added this tick, kept per action so a dropped frame can hand it on
+        java.util.Map<String, String> taskContentByAction = new java.util.LinkedHashMap<>();
+        java.util.Map<String, ActionContext> producerChanges = new java.util.HashMap<>();
+        // Producer actions (levels_task, memory_task, ...) are scheduled by the action graph from
+        // their declared inputs, outputs and schedules; unchanged inputs reuse the previous output.
+        for (java.util.Map.Entry<String, ActionResult> e : actionGraph.run(context, tick, producerChanges).entrySet()) {
+            if (e.getValue().isFailure()) {
+                System.err.println(e.getKey() + " failed: " + e.getValue().getMessage());
+            } else if (e.getValue().isSuccess() && actionManager.getAction(e.getKey()) instanceof BracketAwareAction baa) {
+                // Expect this task's bracket prefixes in the model output this tick
+                expectedBracketPrefixes.addAll(baa.getBracketPrefixes());
             }
+            ActionContext delta = producerChanges.get(e.getKey());
+            StringBuilder contributed = delta != null ? delta.get(ContextKeys.OTHER_TASK_CONTENT) : null;
+            if (contributed != null && contributed.length() > 0) taskContentByAction.put(e.getKey(), contributed.toString());
         }
+        // Store expectedBracketPrefixes in global for this tick (for queued routing), and with the
+        // frame itself, since the global entry moves on to the next tick while this one is inferred.
+        // The frame gets its own copy: a dropped frame's prefixes may be carried over into it later.
+        global.put(ContextKeys.EXPECTED_BRACKET_PREFIXES, expectedBracketPrefixes);
+        List<String> framePrefixes = new ArrayList<>(expectedBracketPrefixes);
+        context.put(ContextKeys.EXPECTED_BRACKET_PREFIXES, framePrefixes);
 
-        // memory_task contributes memory system task and may run standalone every 5 ticks
-        if (actionManager.hasAction("memory_task") && (AppState.tickCounter % 5 == 0)) {
-            ActionResult r = actionManager.executeAction("memory_task", context);
-            if (r.isFailure()) {
-                System.err.println("memory_task failed: " + r.getMessage());
-            } else {
-                expectedBracketPrefixes.addAll(((BracketAwareAction)actionManager.getRegisteredActions().stream().filter(a -> a.getActionId().equals("memory_task")).findFirst().orElse(null)).getBracketPrefixes());
+        boolean runChat = defaultChatBlockedBy.isEmpty() && shouldChatThisTick;
+        if (!runChat) {
+            // Log only when blocked by reasons
+            if (shouldChatThisTick) {
+                System.out.println("Default chat not running, blocked by: " + String.join(", ", defaultChatBlockedBy));
+            }
+            // Build tasks-only content if any tasks contributed this tick; otherwise there is nothing to infer
+            StringBuilder taskContent = context.get(ContextKeys.OTHER_TASK_CONTENT);
+            boolean hasTaskContent = taskContent != null && taskContent.length() > 0;
+            if (!hasTaskContent) return false;
+        }
+
+        // Hand the prepared frame to the inference stage. If the previous frame is still waiting
+        // there (the backend is behind), it is replaced: commenting on an old screen is pointless.
+        // A request still running for a screen the user has since left is cancelled, so the backend
+        // moves on to this frame instead of finishing an answer nobody wants to hear.
+        InferenceJob running = activeJob;
+        if (running != null && screenshot != null && running.screenshot != null && running.scope.isActive()) {
+            double changed = FrameDiff.changedFraction(running.screenshot, screenshot);
+            if (changed >= SCENE_CHANGE_FRACTION) {
+                running.scope.cancel(String.format("screen changed (%.0f%% of samples) by tick %d", changed * 100, tick));
             }
         }
-        // Store expectedBracketPrefixes in global for this tick (for queued routing)
-        global.put("expected_bracket_prefixes", expectedBracketPrefixes);
+        long deadline = capturedAt + Math.max(MIN_CYCLE_BUDGET_MS, DEADLINE_TICKS * AppState.tickIntervalMs);
+        InferenceJob job = new InferenceJob(tick, context, screenshot, framePrefixes, taskContentByAction, runChat,
+                new RequestScope("tick " + tick, capturedAt, deadline));
+        // A blocked chat is retried next tick; a handed-off one waits out its period
+        if (runChat && screenAnalysis != null) scheduler.markStarted(screenAnalysis, tick);
+        ensureInferenceWorker();
+        InferenceJob stale = inferenceQueue.offer(job, this::carryOverTaskContent);
+        if (stale != null) {
+            System.out.println("[Pipeline] Dropped stale frame from tick " + stale.tick + "; " + inferenceQueue.getStats());
+            contextPool.release(stale.context);
+        }
+        return true;
+    }
+
+    /**
+     * Hands the task content of a dropped frame to the frame replacing it. Tasks on a cadence
+     * (memory_task runs every few ticks) would otherwise lose their turn with the dropped frame;
+     * a task that also contributed to the new frame keeps its newer content.
+     */
+    private void carryOverTaskContent(InferenceJob stale, InferenceJob replacement) {
+        for (java.util.Map.Entry<String, String> e : stale.taskContentByAction.entrySet()) {
+            if (replacement.taskContentByAction.containsKey(e.getKey())) continue;
+            StringBuilder taskContent = replacement.context.get(ContextKeys.OTHER_TASK_CONTENT);
+            if (taskContent == null) {
+                taskContent = new StringBuilder();
+                replacement.context.put(ContextKeys.OTHER_TASK_CONTENT, taskContent);
+            }
+            taskContent.append(e.getValue());
+            replacement.taskContentByAction.put(e.getKey(), e.getValue());
+            if (actionManager.getAction(e.getKey()) instanceof BracketAwareAction baa) {
+                for (String prefix : baa.getBracketPrefixes()) {
+                    if (!replacement.expectedBracketPrefixes.contains(prefix)) replacement.expectedBracketPrefixes.add(prefix);
+                }
+            }
+            System.out.println("[Pipeline] Carried " + e.getKey() + " content from tick " + stale.tick + " to tick " + replacement.tick);
+        }
+    }
+
+    /**
+     * Work handed from the capture stage to the inference stage: one prepared frame.
+     */
+    private static final class InferenceJob {
+        final long tick;
+        final ActionContext context;
+        final BufferedImage screenshot; // nullable
+        final List<String> expectedBracketPrefixes;
+        final java.util.Map<String, String> taskContentByAction; // action ID -> its part of OTHER_TASK_CONTENT
+        final boolean runChat; // false: tasks-only request
+        // Deadline and in-flight requests of this frame's backend work
+        final RequestScope scope;
+
+        InferenceJob(long tick, ActionContext context, BufferedImage screenshot, List<String> expectedBracketPrefixes, java.util.Map<String, String> taskContentByAction, boolean runChat, RequestScope scope) {
+            this.tick = tick;
+            this.context = context;
+            this.screenshot = screenshot;
+            this.expectedBracketPrefixes = expectedBracketPrefixes;
+            this.taskContentByAction = taskContentByAction;
+            this.runChat = runChat;
+            this.scope = scope;
+        }
+    }
+
+    private synchronized void ensureInferenceWorker() {
+        if (inferenceWorker != null && inferenceWorker.isAlive()) return;
+        inferenceWorker = new Thread(this::runInferenceStage, "thinking-inference");
+        inferenceWorker.setDaemon(true);
+        inferenceWorker.start();
+    }
+
+    /**
+     * Inference stage: one model request at a time, so the backends see at most one request
+     * in flight from this loop while the capture stage keeps preparing the next frame.
+     */
+    private void runInferenceStage() {
+        while (true) {
+            InferenceJob job;
+            try {
+                job = inferenceQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (!AppState.isRunning) {
+                contextPool.release(job.context);
+                continue;
+            }
+            if (!job.scope.isActive()) {
+                System.out.println("[Pipeline] Dropped frame from tick " + job.tick + ", " + job.scope.getAgeMs() + " ms old: " + job.scope.getCancelReason());
+                contextPool.release(job.context);
+                continue;
+            }
+            // Backend calls made on this thread are bound to the frame's deadline until it exits
+            activeJob = job;
+            job.scope.enter();
+            try {
+                runInference(job);
+            } catch (Exception e) {
+                System.err.println("Error during inference stage: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                job.scope.exit();
+                activeJob = null;
+                contextPool.release(job.context);
+            }
+        }
+    }
+
+    /**
+     * Runs the model request for one prepared frame: the full screen analysis chat, or a tasks-only request.
+     */
+    private void runInference(InferenceJob job) {
+        ActionContext context = job.context;
+        ActionContext global = context.get(ContextKeys.GLOBAL_CONTEXT);
+        List<String> expectedBracketPrefixes = job.expectedBracketPrefixes;
 
         // Now execute the screen analysis action which will assemble the full LLM prompt
-        if (defaultChatBlockedBy.isEmpty() && shouldChatThisTick) {
+        if (job.runChat) {
             // Keep a safety check to avoid calling a missing action
-            if (actionManager.hasAction("screen_analysis")) {
+            Action screenAnalysis = actionManager.getAction("screen_analysis");
+            if (screenAnalysis != null) {
+                long started = System.currentTimeMillis();
                 ActionResult result = actionManager.executeAction("screen_analysis", context);
+                scheduler.recordCost(screenAnalysis, System.currentTimeMillis() - started);
                 if (result.isFailure()) {
                     System.err.println("Screen analysis failed: " + result.getMessage());
                 } else if (result.isSkipped()) {
@@ -145,48 +329,34 @@ public class ThinkingEngine {
                 System.out.println("No suitable actions available at this time");
             }
         } else {
-            // Build tasks-only content if any tasks contributed this tick
-            boolean hasTaskContent = context.contains("other_task_content")
-                    && context.get("other_task_content", StringBuilder.class) != null
-                    && context.get("other_task_content", StringBuilder.class).length() > 0;
-
-            // Log only when blocked by reasons
-            if (shouldChatThisTick && !defaultChatBlockedBy.isEmpty()) {
-                System.out.println("Default chat not running, blocked by: " + String.join(", ", defaultChatBlockedBy));
-            }
+            // Speak is throttled or blocked, but tasks contributed content: run a tasks-only request
+            try {
+                String tasksOnlyPrompt = buildTasksOnlyPrompt(context);
+                if (tasksOnlyPrompt != null && !tasksOnlyPrompt.isBlank()) {
+                    System.out.println("Running tasks-only request...");
+                    BufferedImage shot = context.get(ContextKeys.SCREENSHOT);
+                    String rawTasksResponse = null;
+                    try {
+                        rawTasksResponse = runImageAwarePromptFlow(shot, tasksOnlyPrompt, expectedBracketPrefixes, actionManager.getRegisteredActions(), global);
+                    } catch (Exception ex) {
+                        System.err.println("Error during tasks-only processing: " + ex.getMessage());
+                    }
 
-            // If speak is throttled OR blocked, but we have task content, run a tasks-only request now
-            if ((!shouldChatThisTick || !defaultChatBlockedBy.isEmpty()) && hasTaskContent) {
-                try {
-                    String tasksOnlyPrompt = buildTasksOnlyPrompt(context);
-                    if (tasksOnlyPrompt != null && !tasksOnlyPrompt.isBlank()) {
-                        System.out.println("Running tasks-only request...");
-                        BufferedImage shot = context.contains("screenshot") ? context.get("screenshot", BufferedImage.class) : null;
-                        String rawTasksResponse = null;
-                        try {
-                            rawTasksResponse = runImageAwarePromptFlow(shot, tasksOnlyPrompt, expectedBracketPrefixes, actionManager.getRegisteredActions(), global);
-                        } catch (Exception ex) {
-                            System.err.println("Error during tasks-only processing: " + ex.getMessage());
-                        }
-
-                        if (rawTasksResponse != null && !rawTasksResponse.isBlank()) {
-                            System.out.println("Tasks-only RAW model output: " + rawTasksResponse);
-                        } else {
-                            System.out.println("Tasks-only request returned no content.");
-                        }
+                    if (rawTasksResponse != null && !rawTasksResponse.isBlank()) {
+                        System.out.println("Tasks-only RAW model output: " + rawTasksResponse);
+                    } else {
+                        System.out.println("Tasks-only request returned no content.");
                     }
-                } catch (Exception e) {
-                    System.err.println("Error in tasks-only request: " + e.getMessage());
                 }
+            } catch (Exception e) {
+                System.err.println("Error in tasks-only request: " + e.getMessage());
             }
         }
-
     }
 
     private String buildTasksOnlyPrompt(ActionContext context) {
         // Build a prompt from system tasks + contributed task content only (no personality/speak/vision/multimodal)
-        if (!context.contains("other_task_content")) return null;
-        StringBuilder other = context.get("other_task_content", StringBuilder.class);
+        StringBuilder other = context.get(ContextKeys.OTHER_TASK_CONTENT);
         if (other == null || other.length() == 0) return null;
 
         String tasksInstruction = config.ConfigurationManager.getTasksInstruction();
@@ -200,7 +370,7 @@ public class ThinkingEngine {
 
     /**
      * Shared helper to run an image-aware prompt flow (multimodal, vision, or text-only),
-     * then route bracket sections using expected prefixes. Returns the raw model output.
+     * then queue its bracket sections for routing on the side-effect thread. Returns the raw model output.
      * @param shot Screenshot (nullable)
      * @param prompt The prompt to send
      * @param expectedBracketPrefixes List of bracket prefixes to check for this tick (nullable)
@@ -208,37 +378,130 @@ public class ThinkingEngine {
      * @param context The global context for bracket routing
      */
     public static String runImageAwarePromptFlow(BufferedImage shot, String prompt, List<String> expectedBracketPrefixes, java.util.Collection<Action> actions, ActionContext context) throws Exception {
+        return runImageAwarePromptFlow(shot, prompt, expectedBracketPrefixes, actions, context, null);
+    }
+
+    /**
+     * Same as above, but hands the raw output to {@code onOutput} before any bracket section is routed,
+     * so speech can start right away. Bracket routing runs on the side-effect thread either way.
+     * @param onOutput Called with the raw model output as soon as it arrives (nullable)
+     */
+    public static String runImageAwarePromptFlow(BufferedImage shot, String prompt, List<String> expectedBracketPrefixes, java.util.Collection<Action> actions, ActionContext context, Consumer<String> onOutput) throws Exception {
         if (prompt == null || prompt.isBlank()) return null;
+        QualityLadder.Level level = qualityLadder.getLevel();
+        String cachedDescription = lastVisionDescription;
+        boolean useCachedDescription = shot != null && cachedDescription != null
+                && level.compareTo(QualityLadder.Level.CACHED_DESCRIPTION) >= 0
+                && System.currentTimeMillis() - lastVisionDescriptionAt <= VISION_DESCRIPTION_MAX_AGE_MS;
+        if (shot != null && level != QualityLadder.Level.FULL) {
+            shot = QualityLadder.downscale(shot);
+        }
+        long started = System.currentTimeMillis();
+        String rawModelOutput = runModelRequest(shot, prompt, level, useCachedDescription ? cachedDescription : null);
+        // Completed requests say how fast the backend is, and so does one abandoned at its deadline
+        // (the backend was at least this slow). A screen change, stop or personality switch says nothing.
+        RequestScope scope = RequestScope.current();
+        boolean pastDeadline = scope != null && RequestScope.DEADLINE_PASSED.equals(scope.getCancelReason());
+        if (rawModelOutput != null || pastDeadline) {
+            qualityLadder.recordCycle(System.currentTimeMillis() - started, config.ConfigurationManager.getCycleLatencyTargetMs());
+        }
+
+        System.out.println("Raw model output:\n" + rawModelOutput);
+        if (onOutput != null) {
+            try {
+                onOutput.accept(rawModelOutput);
+            } catch (Exception e) {
+                System.err.println("Error handling model output: " + e.getMessage());
+            }
+        }
+        // A frame cancelled or past its deadline is neither spoken nor allowed to change memory or levels
+        if (scope != null && !scope.isActive()) {
+            System.out.println("Not routing bracket commands of stale output (" + scope.getCancelReason() + ")");
+            return rawModelOutput;
+        }
+        // Memory and levels updates may touch disk; keep them off the path to audio
+        MpscQueue<QueuedModelOutput> queue = context != null ? context.get(ContextKeys.RAW_MODEL_OUTPUT_QUEUE) : null;
+        if (queue != null) {
+            queue.offer(new QueuedModelOutput(rawModelOutput, expectedBracketPrefixes));
+            requestRouting(context, actions);
+        } else {
+            final String routed = rawModelOutput;
+            sideEffectExecutor.execute(() -> routeBracketSections(routed, actions, context, expectedBracketPrefixes));
+        }
+        return rawModelOutput;
+    }
+
+    /**
+     * Wakes the side-effect thread, the single consumer of the raw model output queue, to route
+     * whatever is waiting. Cheap when the queue is empty, so producers call it after every offer.
+     */
+    private static void requestRouting(ActionContext global, java.util.Collection<Action> actions) {
+        MpscQueue<QueuedModelOutput> queue = global.get(ContextKeys.RAW_MODEL_OUTPUT_QUEUE);
+        if (queue == null) return;
+        sideEffectExecutor.execute(() -> routeQueuedOutputs(queue, actions, global));
+    }
+
+    private static void routeQueuedOutputs(MpscQueue<QueuedModelOutput> queue, java.util.Collection<Action> actions, ActionContext global) {
+        try {
+            BracketDispatcher dispatcher = dispatcherFor(actions, global);
+            // Commands of every output drained in this pass are merged and each store saved once
+            CommandBatch commands = new CommandBatch();
+            int routed;
+            try {
+                routed = queue.drain(out -> {
+                    if (out.getRaw() != null && !out.getRaw().isBlank()) dispatcher.dispatch(out.getRaw(), global, out.getExpectedPrefixes(), commands);
+                }, ROUTING_BATCH);
+            } finally {
+                commands.apply();
+            }
+            if (routed == ROUTING_BATCH) {
+                // More may be waiting; continue after anything else queued on this thread
+                sideEffectExecutor.execute(() -> routeQueuedOutputs(queue, actions, global));
+            }
+        } catch (Exception e) {
+            System.err.println("Error routing queued bracket sections: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends the prompt to the backend chosen by the current settings and quality level.
+     * @param cachedDescription When non-null, the screenshot is replaced by this description
+     */
+    private static String runModelRequest(BufferedImage shot, String prompt, QualityLadder.Level level, String cachedDescription) throws Exception {
         String rawModelOutput;
-        if (shot != null) {
+        boolean preferSmallModel = level.compareTo(QualityLadder.Level.SMALL_MODEL) >= 0;
+        if (cachedDescription != null) {
+            System.out.println("Image-aware (" + level + ") using cached activity description");
+            String finalPrompt = prompt + "\n\nBased on this activity: " + cachedDescription;
+            System.out.println("Final prompt (cached description):\n" + finalPrompt);
+            rawModelOutput = api.ApiClient.generateResponse(finalPrompt, preferSmallModel);
+        } else if (shot != null) {
             if (core.AppState.useMultimodal()) {
                 System.out.println("Image-aware (multimodal) with screenshot");
                 System.out.println("Prompt (multimodal):\n" + prompt);
-                rawModelOutput = api.ApiClient.analyzeImageMultimodal(shot, prompt);
+                rawModelOutput = api.ApiClient.analyzeImageMultimodal(shot, prompt, preferSmallModel);
             } else {
                 System.out.println("Image-aware (traditional) vision -> analysis");
                 String vPrompt = config.ConfigurationManager.getVisionPrompt();
                 String desc = api.ApiClient.analyzeImage(shot, vPrompt);
                 if (desc != null && !desc.isBlank()) {
+                    lastVisionDescription = desc;
+                    lastVisionDescriptionAt = System.currentTimeMillis();
                     String finalPrompt = prompt + "\n\nBased on this activity: " + desc;
                     System.out.println("Final prompt (traditional):\n" + finalPrompt);
-                    rawModelOutput = api.ApiClient.generateResponse(finalPrompt);
+                    rawModelOutput = api.ApiClient.generateResponse(finalPrompt, preferSmallModel);
                 } else {
                     System.err.println("Image-aware: vision returned no description; falling back to text-only prompt.");
                     System.out.println("Prompt (text-only fallback):\n" + prompt);
-                    rawModelOutput = api.ApiClient.generateResponse(prompt);
+                    rawModelOutput = api.ApiClient.generateResponse(prompt, preferSmallModel);
                 }
             }
         } else {
             // No screenshot available; fallback to text-only prompt
             System.out.println("Image-aware (no screenshot) using text-only prompt");
             System.out.println("Prompt (text-only):\n" + prompt);
-            rawModelOutput = api.ApiClient.generateResponse(prompt);
+            rawModelOutput = api.ApiClient.generateResponse(prompt, preferSmallModel);
         }
-
-        System.out.println("Raw model output (after routing):\n" + rawModelOutput);
-        // Route bracket sections using expected prefixes
-        routeBracketSections(rawModelOutput, actions, context, expectedBracketPrefixes);
         return rawModelOutput;
     }
 
@@ -251,46 +514,22 @@ public class ThinkingEngine {
      */
     public static void routeBracketSections(String raw, java.util.Collection<Action> actions, ActionContext context, List<String> expectedPrefixes) {
         if (raw == null || raw.isBlank() || actions == null || actions.isEmpty()) return;
-        int idx = 0;
-        boolean anyFound = false;
-        java.util.Set<String> foundPrefixes = new java.util.HashSet<>();
-        while ((idx = raw.indexOf('[', idx)) != -1) {
-            int end = raw.indexOf(']', idx + 1);
-            if (end == -1) break;
-            String inside = raw.substring(idx + 1, end).trim();
-            anyFound = true;
-            if (!inside.startsWith("speak:")) {
-                System.out.println("Bracketed section found: [" + inside + "]");
-            }
-            // Track found prefixes
-            if (expectedPrefixes != null) {
-                for (String prefix : expectedPrefixes) {
-                    if (inside.startsWith(prefix)) {
-                        foundPrefixes.add(prefix);
-                    }
-                }
-            }
-            for (Action a : actions) {
-                if (a instanceof BracketAwareAction baa) {
-                    for (String p : baa.getBracketPrefixes()) {
-                        if (inside.startsWith(p)) {
-                            try { baa.handleBracket(inside, context); } catch (Throwable ignored) {}
-                            break;
-                        }
-                    }
-                }
-            }
-            idx = end + 1;
-        }
-        if (!anyFound) {
-            System.out.println("No bracketed sections found in model output.");
-        } else if (expectedPrefixes != null && !expectedPrefixes.isEmpty()) {
-            for (String prefix : expectedPrefixes) {
-                if (!foundPrefixes.contains(prefix)) {
-                    System.out.println("No [" + prefix + "...] command found; no effect for this prefix this cycle.");
-                }
-            }
+        dispatcherFor(actions, context).dispatch(raw, context, expectedPrefixes);
+    }
+
+    /**
+     * A dispatcher for exactly the given actions: the action manager's precompiled one when they are
+     * its registered actions, otherwise one compiled for them.
+     */
+    private static BracketDispatcher dispatcherFor(java.util.Collection<Action> actions, ActionContext context) {
+        if (actions == null) return BracketDispatcher.EMPTY;
+        ActionManager am = context != null ? context.get(ContextKeys.ACTION_MANAGER) : null;
+        if (am != null) {
+            BracketDispatcher precompiled = am.getBracketDispatcher();
+            List<Action> given = actions instanceof List<Action> list ? list : new ArrayList<>(actions);
+            if (am.getRegisteredActions().equals(given)) return precompiled;
         }
+        return BracketDispatcher.compile(actions);
     }
 
     /**
@@ -308,6 +547,22 @@ public class ThinkingEngine {
         }
     }
 
+    /**
+     * Returns the quality ladder that adapts requests to backend latency.
+     */
+    public static QualityLadder getQualityLadder() {
+        return qualityLadder;
+    }
+
+    /**
+     * Discards frames waiting for inference, e.g. when processing is stopped.
+     */
+    public void clearPendingWork() {
+        for (InferenceJob job : inferenceQueue.clear()) {
+            contextPool.release(job.context);
+        }
+    }
+
     /**
      * Checks if the thinking engine is currently processing.
      */
@@ -11,9 +11,11 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Base64;
 import java.util.List;
@@ -24,15 +26,20 @@ import java.util.Map;
  * Supports both local services and external APIs (Google Gemini).
  */
 public class ApiClient {
-    private static final String OLLAMA_API_URL = "http://localhost:11434/api/generate";
-    private static final String VISION_API_URL = "http://localhost:5002/describe";
+    // Overridable with -D properties, e.g. to point at MockBackendServer
+    private static final String OLLAMA_API_URL = System.getProperty("assistant.ollamaUrl", "http://localhost:11434/api/generate");
+    private static final String VISION_API_URL = System.getProperty("assistant.visionUrl", "http://localhost:5002/describe");
     private static final String LANGUAGE_MODEL = "qwen3:4b";
+    private static final String SMALL_LANGUAGE_MODEL = "qwen3:1.7b";
 
     private static final Gson gson = new Gson();
     private static final HttpClient httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(10))
             .build();
 
+    // Result of the vision service capabilities probe; null until probed
+    private static volatile Boolean visionBinaryUpload = null;
+
     // === Vision API Methods ===
 
     /**
@@ -52,6 +59,14 @@ public class ApiClient {
      * Analyzes an image using multimodal approach - combines vision and text generation in one request
      */
     public static String analyzeImageMultimodal(BufferedImage image, String prompt) throws IOException, InterruptedException {
+        return analyzeImageMultimodal(image, prompt, false);
+    }
+
+    /**
+     * Same as above, optionally preferring the smaller local model. The external API has a single
+     * configured model, so the preference only affects the local fallback.
+     */
+    public static String analyzeImageMultimodal(BufferedImage image, String prompt, boolean preferSmallModel) throws IOException, InterruptedException {
         if (ConfigurationManager.useApiMultimodal() && ConfigurationManager.isMultimodalApiConfigAvailable()) {
             System.out.println("Using Multimodal API: " + ConfigurationManager.useApiMultimodal());
             return callExternalMultimodalApi(prompt, image);
@@ -60,16 +75,33 @@ public class ApiClient {
             // Fallback to local processing - analyze image then generate response
             String imageDescription = callLocalVisionService(ConfigurationManager.getVisionPrompt(), image);
             if (imageDescription != null && !imageDescription.isBlank()) {
-                return callLocalLanguageModel(String.format(prompt + " Based on this activity: %s", imageDescription));
+                String finalPrompt = String.format(prompt + " Based on this activity: %s", imageDescription);
+                return preferSmallModel ? callLocalOllama(finalPrompt, SMALL_LANGUAGE_MODEL) : callLocalLanguageModel(finalPrompt);
             }
             return null;
         }
     }
 
     /**
-     * Calls local Python vision service
+     * Calls local Python vision service.
+     * Sends the raw JPEG when the service advertises binary uploads, base64-in-JSON otherwise.
      */
     private static String callLocalVisionService(String prompt, BufferedImage image) throws IOException, InterruptedException {
+        if (supportsBinaryVisionUpload()) {
+            HttpResponse<String> response = sendBinaryVisionRequest(prompt, image);
+            if (response.statusCode() == 200) {
+                return parseLocalVisionResponse(response.body());
+            }
+            if (response.statusCode() == 400 || response.statusCode() == 404 || response.statusCode() == 415) {
+                // Service no longer accepts binary bodies (e.g. restarted with an older version)
+                System.err.println("Vision service rejected binary upload, falling back to JSON: " + response.statusCode());
+                visionBinaryUpload = false;
+            } else {
+                System.err.printf("Error from vision service: %d - %s%n", response.statusCode(), response.body());
+                return null;
+            }
+        }
+
         String base64Image = encodeImageToBase64(image);
         Map<String, String> payload = Map.of("prompt", prompt, "image", base64Image);
         String jsonPayload = gson.toJson(payload);
@@ -82,18 +114,80 @@ public class ApiClient {
                 .build();
 
         System.out.println("Sending request to Python vision service...");
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = RequestScope.send(httpClient, request, HttpResponse.BodyHandlers.ofString());
 
         if (response.statusCode() == 200) {
-            JsonObject jsonObject = JsonParser.parseString(response.body()).getAsJsonObject();
-            String description = jsonObject.get("description").getAsString();
-            return description.replaceAll("(?i)screenshot", "activity");
+            return parseLocalVisionResponse(response.body());
         } else {
             System.err.printf("Error from vision service: %d - %s%n", response.statusCode(), response.body());
             return null;
         }
     }
 
+    /**
+     * Sends the JPEG bytes as the request body; the prompt travels URL-encoded in the X-Prompt header.
+     */
+    private static HttpResponse<String> sendBinaryVisionRequest(String prompt, BufferedImage image) throws IOException, InterruptedException {
+        byte[] jpeg = encodeImageToJpeg(image);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(VISION_API_URL))
+                .header("Content-Type", "application/octet-stream")
+                .header("X-Image-Format", "jpeg")
+                .header("X-Prompt", URLEncoder.encode(prompt, StandardCharsets.UTF_8))
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jpeg))
+                .build();
+
+        System.out.println("Sending binary request to Python vision service (" + jpeg.length + " bytes)...");
+        return RequestScope.send(httpClient, request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Probes GET /capabilities on the vision service and caches the answer once it is definitive:
+     * a 200 (supported if it says {"binary_upload": true}) or a 404 (older service, JSON protocol).
+     * If the service is not reachable yet, or answers with another status, the JSON protocol is used
+     * for this request and the next call probes again.
+     */
+    private static boolean supportsBinaryVisionUpload() {
+        Boolean cached = visionBinaryUpload;
+        if (cached != null) return cached;
+        boolean supported = false;
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(VISION_API_URL).resolve("/capabilities"))
+                    .timeout(Duration.ofSeconds(3))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200) {
+                try {
+                    JsonObject caps = JsonParser.parseString(response.body()).getAsJsonObject();
+                    supported = caps.has("binary_upload") && caps.get("binary_upload").getAsBoolean();
+                } catch (Exception parseErr) {
+                    // Capabilities without the flag we understand; keep the JSON protocol
+                }
+            } else if (response.statusCode() != 404) {
+                // Not a definitive answer (e.g. the service is still starting); ask again next time
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            // Service not reachable yet; do not remember this as "unsupported"
+            return false;
+        }
+        System.out.println("Vision service binary upload: " + (supported ? "supported" : "not supported"));
+        visionBinaryUpload = supported;
+        return supported;
+    }
+
+    private static String parseLocalVisionResponse(String body) {
+        JsonObject jsonObject = JsonParser.parseString(body).getAsJsonObject();
+        String description = jsonObject.get("description").getAsString();
+        return description.replaceAll("(?i)screenshot", "activity");
+    }
+
     /**
      * Calls external vision API (Google Gemini Vision)
      */
@@ -122,7 +216,7 @@ public class ApiClient {
                 .build();
 
         System.out.println("Sending vision request to: " + visionConfig.getUrl());
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = RequestScope.send(httpClient, request, HttpResponse.BodyHandlers.ofString());
 
         if (response.statusCode() == 200) {
             return parseGeminiVisionResponse(response.body());
@@ -160,10 +254,18 @@ public class ApiClient {
      * Generates a response using either local Ollama or external Language Model API
      */
     public static String generateResponse(String prompt) throws IOException, InterruptedException {
+        return generateResponse(prompt, false);
+    }
+
+    /**
+     * Generates a response, optionally preferring the smaller local model.
+     * The external API has a single configured model, so the preference only affects Ollama.
+     */
+    public static String generateResponse(String prompt, boolean preferSmallModel) throws IOException, InterruptedException {
         if (ConfigurationManager.useApiAnalysis() && ConfigurationManager.isAnalysisApiAvailable()) {
             return callExternalLanguageApi(prompt);
         } else {
-            return callLocalOllama(prompt);
+            return callLocalOllama(prompt, preferSmallModel ? SMALL_LANGUAGE_MODEL : LANGUAGE_MODEL);
         }
     }
 
@@ -171,8 +273,15 @@ public class ApiClient {
      * Calls local Ollama service
      */
     private static String callLocalOllama(String prompt) throws IOException, InterruptedException {
+        return callLocalOllama(prompt, LANGUAGE_MODEL);
+    }
+
+    /**
+     * Calls local Ollama service with a specific model
+     */
+    private static String callLocalOllama(String prompt, String model) throws IOException, InterruptedException {
         Map<String, Object> payload = Map.of(
-            "model", LANGUAGE_MODEL,
+            "model", model,
             "prompt", prompt,
             "stream", false,
             "options", Map.of("temperature", 0.7)
@@ -187,8 +296,8 @@ public class ApiClient {
                 .POST(HttpRequest.BodyPublishers.ofString(jsonPayload))
                 .build();
 
-        System.out.println("Sending request to Ollama: " + LANGUAGE_MODEL);
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        System.out.println("Sending request to Ollama: " + model);
+        HttpResponse<String> response = RequestScope.send(httpClient, request, HttpResponse.BodyHandlers.ofString());
 
         if (response.statusCode() == 200) {
             JsonObject jsonObject = JsonParser.parseString(response.body()).getAsJsonObject();
@@ -236,7 +345,7 @@ public class ApiClient {
                 .build();
 
         System.out.println("Sending analysis request to: " + analysisConfig.getUrl());
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = RequestScope.send(httpClient, request, HttpResponse.BodyHandlers.ofString());
 
         if (response.statusCode() == 200) {
             return parseGeminiTextResponse(response.body());
@@ -274,7 +383,7 @@ public class ApiClient {
                 .build();
 
         System.out.println("Sending multimodal request to: " + multimodalConfig.getUrl());
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = RequestScope.send(httpClient, request, HttpResponse.BodyHandlers.ofString());
 
         if (response.statusCode() == 200) {
             return parseGeminiTextResponse(response.body());
@@ -319,10 +428,16 @@ public class ApiClient {
      * Encodes a BufferedImage to Base64 string
      */
     private static String encodeImageToBase64(BufferedImage image) throws IOException {
+        return Base64.getEncoder().encodeToString(encodeImageToJpeg(image));
+    }
+
+    /**
+     * Encodes a BufferedImage to JPEG bytes
+     */
+    private static byte[] encodeImageToJpeg(BufferedImage image) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ImageIO.write(image, "jpeg", baos);
-        byte[] imageBytes = baos.toByteArray();
-        return Base64.getEncoder().encodeToString(imageBytes);
+        return baos.toByteArray();
     }
 
     /**
@@ -0,0 +1,321 @@
+package api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache of synthesized audio (WAV files or the sidecar's "PCMS"-framed PCM streams):
+ * an in-memory LRU in front of a size-capped store under data/cache/tts. Entries are keyed by a hash of text, character and speed, so repeated
+ * stock phrases play without another round trip to the TTS sidecar.
+ */
+public class AudioCache {
+    private static final Path CACHE_DIR = Path.of("data", "cache", "tts");
+    private static final long MEMORY_CAP_BYTES = 16L * 1024 * 1024;
+    private static final long DISK_CAP_BYTES = 256L * 1024 * 1024;
+    // Entries are WAV or PCMS, so the extension names neither; older versions wrote only WAV as .wav
+    private static final String ENTRY_SUFFIX = ".audio";
+    private static final String LEGACY_SUFFIX = ".wav";
+    // Longer utterances are unlikely to repeat and would crowd out the stock phrases
+    private static final int MAX_ENTRY_BYTES = 4 * 1024 * 1024;
+
+    private static final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private static long memoryBytes = 0;
+    private static long diskBytes = -1; // computed on first use
+
+    private static long memoryHits = 0;
+    private static long diskHits = 0;
+    private static long misses = 0;
+    private static long evictions = 0;
+
+    private static final java.util.concurrent.ExecutorService diskWriter = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "audio-cache-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Returns the cached bytes for this utterance, a WAV file or a PCMS stream as it was
+     * received, or null on a miss.
+     */
+    public static byte[] get(String text, String character, double speed) {
+        String key = key(text, character, speed);
+        synchronized (AudioCache.class) {
+            byte[] hit = memory.get(key);
+            if (hit != null) {
+                memoryHits++;
+                return hit;
+            }
+        }
+        Path file = entryFile(key);
+        try {
+            if (Files.exists(file)) {
+                byte[] audio = Files.readAllBytes(file);
+                // Touch so disk eviction sees this entry as recently used
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                synchronized (AudioCache.class) {
+                    diskHits++;
+                    putInMemory(key, audio);
+                }
+                return audio;
+            }
+        } catch (IOException e) {
+            System.err.println("Audio cache read failed: " + e.getMessage());
+        }
+        synchronized (AudioCache.class) {
+            misses++;
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the utterance is cached in either tier, without counting a hit or miss.
+     */
+    public static boolean contains(String text, String character, double speed) {
+        String key = key(text, character, speed);
+        synchronized (AudioCache.class) {
+            if (memory.containsKey(key)) return true;
+        }
+        return Files.exists(entryFile(key));
+    }
+
+    /**
+     * Stores a complete WAV file or PCMS stream in both tiers. The memory tier is updated right away; the disk
+     * write happens on a background thread so callers on the speech path do not wait for it.
+     */
+    public static void put(String text, String character, double speed, byte[] audio) {
+        if (audio == null || audio.length == 0 || audio.length > MAX_ENTRY_BYTES) return;
+        String key = key(text, character, speed);
+        synchronized (AudioCache.class) {
+            putInMemory(key, audio);
+        }
+        diskWriter.execute(() -> writeToDisk(key, audio));
+    }
+
+    private static void writeToDisk(String key, byte[] audio) {
+        try {
+            Files.createDirectories(CACHE_DIR);
+            Path file = CACHE_DIR.resolve(key + ENTRY_SUFFIX);
+            boolean existed = Files.exists(file);
+            // Write then move so a crash never leaves a truncated entry behind
+            Path tmp = Files.createTempFile(CACHE_DIR, key, ".tmp");
+            Files.write(tmp, audio);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (AudioCache.class) {
+                if (diskBytes < 0) diskBytes = scanDiskBytes();
+                else if (!existed) diskBytes += audio.length;
+                if (diskBytes > DISK_CAP_BYTES) evictDisk();
+            }
+        } catch (IOException e) {
+            System.err.println("Audio cache write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wraps a synthesis response so the bytes read through it can be stored once complete.
+     */
+    public static Recorder record(InputStream in, String text, String character, double speed) {
+        return new Recorder(in, text, character, speed);
+    }
+
+    /**
+     * Pass-through stream that keeps a copy of what was read, up to the maximum entry size.
+     */
+    public static final class Recorder extends FilterInputStream {
+        private final String text;
+        private final String character;
+        private final double speed;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private Recorder(InputStream in, String text, String character, double speed) {
+            super(in);
+            this.text = text;
+            this.character = character;
+            this.speed = speed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) append(new byte[]{(byte) b}, 0, 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) append(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would leave a hole in the copy
+            long skipped = 0;
+            byte[] buf = new byte[(int) Math.min(8192, Math.max(1, n))];
+            while (skipped < n) {
+                int r = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+                if (r == -1) break;
+                skipped += r;
+            }
+            return skipped;
+        }
+
+        /**
+         * Reads any remaining bytes and stores the audio in the cache if it arrived complete.
+         */
+        public void commit() throws IOException {
+            byte[] buf = new byte[8192];
+            while (read(buf, 0, buf.length) != -1) {
+                // drain to end of stream
+            }
+            if (copy == null) return;
+            byte[] audio = copy.toByteArray();
+            if (!isComplete(audio)) {
+                System.err.println("Not caching incomplete audio for \"" + text + "\" (" + audio.length + " bytes)");
+                return;
+            }
+            put(text, character, speed, audio);
+        }
+
+        // A cut-off stream would be replayed cut off on every later request for the phrase
+        private static boolean isComplete(byte[] audio) {
+            if (audio.length < 4) return false;
+            byte[] magic = java.util.Arrays.copyOf(audio, 4);
+            if (PcmStreamReader.isMagic(magic)) {
+                return PcmStreamReader.isComplete(audio);
+            }
+            // WAV: the data chunk must hold as many bytes as its header announces
+            try {
+                java.io.ByteArrayInputStream in = new java.io.ByteArrayInputStream(audio, 4, audio.length - 4);
+                StreamingAudioPlayer.WavInfo info = StreamingAudioPlayer.readWavHeader(magic, in);
+                return info.dataLength > 0 && in.available() >= info.dataLength;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private void append(byte[] b, int off, int len) {
+            if (copy == null) return;
+            if (copy.size() + len > MAX_ENTRY_BYTES) {
+                copy = null; // too large to cache; stop copying
+                return;
+            }
+            copy.write(b, off, len);
+        }
+    }
+
+    /**
+     * Returns a one-line summary of cache effectiveness.
+     */
+    public static synchronized String getStats() {
+        long lookups = memoryHits + diskHits + misses;
+        double hitRate = lookups == 0 ? 0.0 : (double) (memoryHits + diskHits) / lookups;
+        return String.format("audio cache: %.1f%% hit rate (%d memory, %d disk, %d miss), %d evicted, %d KB in memory",
+                hitRate * 100, memoryHits, diskHits, misses, evictions, memoryBytes / 1024);
+    }
+
+    public static synchronized double getHitRate() {
+        long lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0.0 : (double) (memoryHits + diskHits) / lookups;
+    }
+
+    // === Internal helpers ===
+
+    private static void putInMemory(String key, byte[] audio) {
+        byte[] previous = memory.put(key, audio);
+        if (previous != null) memoryBytes -= previous.length;
+        memoryBytes += audio.length;
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (memoryBytes > MEMORY_CAP_BYTES && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            if (eldest.getKey().equals(key)) continue;
+            memoryBytes -= eldest.getValue().length;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static long scanDiskBytes() {
+        long total = 0;
+        for (Path p : listEntries()) {
+            try { total += Files.size(p); } catch (IOException ignored) {}
+        }
+        return total;
+    }
+
+    /**
+     * Deletes least recently used files until the store is back under 90% of its cap.
+     */
+    private static void evictDisk() {
+        List<Path> entries = listEntries();
+        entries.sort((a, b) -> Long.compare(lastModified(a), lastModified(b)));
+        long target = DISK_CAP_BYTES * 9 / 10;
+        for (Path p : entries) {
+            if (diskBytes <= target) break;
+            try {
+                long size = Files.size(p);
+                Files.deleteIfExists(p);
+                diskBytes -= size;
+                evictions++;
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private static List<Path> listEntries() {
+        List<Path> entries = new ArrayList<>();
+        if (!Files.isDirectory(CACHE_DIR)) return entries;
+        try (Stream<Path> files = Files.list(CACHE_DIR)) {
+            files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.endsWith(ENTRY_SUFFIX) || name.endsWith(LEGACY_SUFFIX);
+            }).forEach(entries::add);
+        } catch (IOException e) {
+            System.err.println("Audio cache scan failed: " + e.getMessage());
+        }
+        return entries;
+    }
+
+    /**
+     * The file holding this entry: the current one, or one written as .wav by an older version.
+     */
+    private static Path entryFile(String key) {
+        Path file = CACHE_DIR.resolve(key + ENTRY_SUFFIX);
+        if (Files.exists(file)) return file;
+        Path legacy = CACHE_DIR.resolve(key + LEGACY_SUFFIX);
+        return Files.exists(legacy) ? legacy : file;
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String key(String text, String character, double speed) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            String material = text + '\u0000' + character + '\u0000' + speed;
+            return HexFormat.of().formatHex(sha.digest(material.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package api;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps one long-lived, already opened output line per audio format so utterances do not pay
+ * the device open cost (hundreds of milliseconds on some ALSA setups) every time.
+ * Each pooled line carries its own conversion buffers, reused across utterances.
+ */
+public class AudioOutput {
+
+    static final int CHUNK_BYTES = 8192;
+
+    // Formats produced by the TTS sidecar models (XTTS at 24 kHz, VITS/Tacotron at 22.05 kHz)
+    private static final float[] WARM_SAMPLE_RATES = {24000f, 22050f};
+
+    private static final Map<String, PooledLine> lines = new HashMap<>();
+
+    /**
+     * An open output line plus scratch buffers. Used by one playback session at a time.
+     */
+    public static final class PooledLine {
+        private final AudioFormat format;
+        private final SourceDataLine line;
+        private final boolean pooled;
+        final byte[] readBuffer = new byte[CHUNK_BYTES];
+        // Worst case is 8-bit input, which doubles in size when widened to 16-bit
+        final byte[] convertBuffer = new byte[CHUNK_BYTES * 2];
+        private boolean inUse = false;
+
+        private PooledLine(AudioFormat format, SourceDataLine line, boolean pooled) {
+            this.format = format;
+            this.line = line;
+            this.pooled = pooled;
+        }
+
+        public AudioFormat getFormat() { return format; }
+        public SourceDataLine getLine() { return line; }
+    }
+
+    /**
+     * Returns an open line for the 16-bit PCM format, opening and pooling it on first use.
+     * If the pooled line is busy, a temporary line is opened and closed again on release.
+     */
+    public static PooledLine acquire(AudioFormat format) throws LineUnavailableException {
+        String key = key(format);
+        synchronized (lines) {
+            PooledLine pooled = lines.get(key);
+            if (pooled == null || !pooled.line.isOpen()) {
+                pooled = new PooledLine(format, openLine(format), true);
+                lines.put(key, pooled);
+            }
+            if (!pooled.inUse) {
+                pooled.inUse = true;
+                return pooled;
+            }
+        }
+        return new PooledLine(format, openLine(format), false);
+    }
+
+    /**
+     * Returns a line to the pool. The caller is expected to have drained and stopped it.
+     */
+    public static void release(PooledLine pooledLine) {
+        if (pooledLine == null) return;
+        if (!pooledLine.pooled) {
+            pooledLine.line.close();
+            return;
+        }
+        synchronized (lines) {
+            pooledLine.inUse = false;
+        }
+    }
+
+    /**
+     * Opens the lines for the usual TTS formats and pushes a few milliseconds of silence
+     * through them, so the first utterance finds the device ready.
+     */
+    public static void warmUp() {
+        for (float rate : WARM_SAMPLE_RATES) {
+            AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, 1, 2, rate, false);
+            try {
+                PooledLine pooled = acquire(format);
+                try {
+                    SourceDataLine line = pooled.line;
+                    byte[] silence = new byte[(int) (rate * 2 / 50)]; // 20 ms
+                    line.start();
+                    line.write(silence, 0, silence.length);
+                    line.drain();
+                    line.stop();
+                } finally {
+                    release(pooled);
+                }
+            } catch (Exception e) {
+                System.err.println("Could not warm audio line " + key(format) + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Audio output lines warmed.");
+    }
+
+    /**
+     * Closes all pooled lines, e.g. at shutdown.
+     */
+    public static void closeAll() {
+        synchronized (lines) {
+            for (PooledLine pooled : lines.values()) {
+                pooled.line.close();
+            }
+            lines.clear();
+        }
+    }
+
+    private static SourceDataLine openLine(AudioFormat format) throws LineUnavailableException {
+        SourceDataLine line = AudioSystem.getSourceDataLine(format);
+        line.open(format);
+        return line;
+    }
+
+    private static String key(AudioFormat format) {
+        return (int) format.getSampleRate() + "Hz/" + format.getChannels() + "ch";
+    }
+}
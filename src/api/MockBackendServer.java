@@ -0,0 +1,420 @@
+package api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the model backends, used to exercise ApiClient and TtsApiClient offline.
+ * Serves on a single port:
+ *  - POST /api/generate (Ollama, streaming and non-streaming)
+ *  - GET /capabilities and POST /describe (local vision service, JSON or raw JPEG body)
+ *  - POST any path ending in :generateContent (Google Gemini)
+ *  - GET /characters, POST /synthesize and POST /synthesize_stream (Coqui TTS sidecar)
+ * Latency, error rate and the canned bracket outputs are configurable per endpoint group.
+ *
+ * Point the app at it with JVM properties, e.g.
+ *  -Dassistant.ollamaUrl=http://localhost:8089/api/generate
+ *  -Dassistant.visionUrl=http://localhost:8089/describe
+ *  -Dassistant.ttsUrl=http://localhost:8089
+ * and set the Gemini urls in system.json to http://localhost:8089/v1beta/models/mock:generateContent
+ */
+public class MockBackendServer {
+
+    public enum Distribution {
+        FIXED,
+        UNIFORM,
+        NORMAL,
+        LOG_NORMAL
+    }
+
+    /**
+     * Latency and failure behaviour of one endpoint group.
+     */
+    public static class Profile {
+        private final Distribution distribution;
+        private final long meanMs;
+        private final long spreadMs;
+        private final double errorRate;
+
+        public Profile(Distribution distribution, long meanMs, long spreadMs, double errorRate) {
+            this.distribution = distribution;
+            this.meanMs = meanMs;
+            this.spreadMs = spreadMs;
+            this.errorRate = errorRate;
+        }
+
+        public long sampleLatencyMs(Random random) {
+            double value = switch (distribution) {
+                case FIXED -> meanMs;
+                case UNIFORM -> meanMs - spreadMs + random.nextDouble() * 2 * spreadMs;
+                case NORMAL -> meanMs + random.nextGaussian() * spreadMs;
+                case LOG_NORMAL -> {
+                    // Parameterised so the median is meanMs and spreadMs widens the tail
+                    double sigma = meanMs > 0 ? Math.log1p((double) spreadMs / meanMs) : 0;
+                    yield meanMs * Math.exp(random.nextGaussian() * sigma);
+                }
+            };
+            return Math.max(0, Math.round(value));
+        }
+
+        public boolean shouldFail(Random random) {
+            return errorRate > 0 && random.nextDouble() < errorRate;
+        }
+    }
+
+    private static final Gson gson = new Gson();
+    private static final int TTS_SAMPLE_RATE = 22050;
+
+    private final Random random = new Random();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger outputIndex = new AtomicInteger();
+
+    private volatile Profile languageProfile = new Profile(Distribution.LOG_NORMAL, 1500, 1000, 0.0);
+    private volatile Profile visionProfile = new Profile(Distribution.LOG_NORMAL, 800, 400, 0.0);
+    private volatile Profile ttsProfile = new Profile(Distribution.NORMAL, 600, 200, 0.0);
+    private volatile long streamTokenDelayMs = 25;
+    private volatile double ttsSecondsPerChar = 0.06;
+    private volatile List<String> cannedOutputs = List.of(
+            "[levels:(add_exp_on_skill('Programming'))][memory:write_short_term('User is writing Java code.')][speak:(Another bug? Shocking. Truly.)]",
+            "[levels:(add_skill('Video Editing', 'Creativity'))][speak:(Cutting clips again? At least try to be original.)]",
+            "[speak:(Hmph. I suppose that is mildly interesting. Do not get used to my attention.)]"
+    );
+    private volatile String cannedDescription = "The user is reading source code in an editor.";
+    private volatile List<String> voices = List.of("Default Girl Voice", "Student girl voice");
+    private volatile boolean binaryVisionUpload = true;
+    private volatile boolean pcmStreaming = true;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // === Configuration ===
+
+    public void setLanguageProfile(Profile profile) { this.languageProfile = profile; }
+    public void setVisionProfile(Profile profile) { this.visionProfile = profile; }
+    public void setTtsProfile(Profile profile) { this.ttsProfile = profile; }
+    public void setStreamTokenDelayMs(long delayMs) { this.streamTokenDelayMs = delayMs; }
+    public void setTtsSecondsPerChar(double secondsPerChar) { this.ttsSecondsPerChar = secondsPerChar; }
+    public void setCannedOutputs(List<String> outputs) { this.cannedOutputs = List.copyOf(outputs); }
+    public void setCannedDescription(String description) { this.cannedDescription = description; }
+    public void setVoices(List<String> voices) { this.voices = List.copyOf(voices); }
+    public void setBinaryVisionUpload(boolean supported) { this.binaryVisionUpload = supported; }
+    public void setPcmStreaming(boolean supported) { this.pcmStreaming = supported; }
+
+    // === Lifecycle ===
+
+    public synchronized void start(int port) throws IOException {
+        if (server != null) return;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        System.out.println("Mock backend listening on http://127.0.0.1:" + getPort());
+    }
+
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        executor = null;
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    /**
+     * Returns how many requests were received on a path, e.g. "/api/generate".
+     */
+    public long getRequestCount(String path) {
+        AtomicLong count = requestCounts.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    // === Routing ===
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        requestCounts.computeIfAbsent(path, k -> new AtomicLong()).incrementAndGet();
+        try {
+            if ("POST".equals(method) && path.equals("/api/generate")) {
+                handleGenerate(exchange);
+            } else if ("GET".equals(method) && path.equals("/capabilities")) {
+                sendJson(exchange, 200, "{\"binary_upload\":" + binaryVisionUpload + "}");
+            } else if ("POST".equals(method) && path.equals("/describe")) {
+                handleDescribe(exchange);
+            } else if ("POST".equals(method) && path.endsWith(":generateContent")) {
+                handleGemini(exchange);
+            } else if ("GET".equals(method) && path.equals("/characters")) {
+                sendJson(exchange, 200, gson.toJson(voices));
+            } else if ("POST".equals(method) && path.equals("/synthesize")) {
+                handleSynthesize(exchange);
+            } else if ("POST".equals(method) && path.equals("/synthesize_stream") && pcmStreaming) {
+                handleSynthesizeStream(exchange);
+            } else {
+                sendJson(exchange, 404, "{\"error\":\"Not found: " + path + "\"}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Mock backend error on " + path + ": " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleGenerate(HttpExchange exchange) throws IOException, InterruptedException {
+        JsonObject body = readJson(exchange);
+        if (simulate(exchange, languageProfile)) return;
+        String output = nextCannedOutput();
+        boolean stream = !body.has("stream") || body.get("stream").getAsBoolean();
+        if (!stream) {
+            JsonObject json = new JsonObject();
+            json.addProperty("response", output);
+            json.addProperty("done", true);
+            sendJson(exchange, 200, json.toString());
+            return;
+        }
+        // Ollama streams newline-delimited JSON objects, one per token group
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int i = 0; i < output.length(); i += 6) {
+                JsonObject chunk = new JsonObject();
+                chunk.addProperty("response", output.substring(i, Math.min(output.length(), i + 6)));
+                chunk.addProperty("done", false);
+                out.write((chunk + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (streamTokenDelayMs > 0) Thread.sleep(streamTokenDelayMs);
+            }
+            JsonObject done = new JsonObject();
+            done.addProperty("response", "");
+            done.addProperty("done", true);
+            out.write((done + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void handleDescribe(HttpExchange exchange) throws IOException, InterruptedException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        boolean binary = contentType != null && contentType.startsWith("application/octet-stream");
+        if (binary && !binaryVisionUpload) {
+            exchange.getRequestBody().readAllBytes();
+            sendJson(exchange, 415, "{\"error\":\"Binary upload not supported\"}");
+            return;
+        }
+        if (binary && exchange.getRequestHeaders().getFirst("X-Prompt") == null) {
+            exchange.getRequestBody().readAllBytes();
+            sendJson(exchange, 400, "{\"error\":\"Missing X-Prompt header\"}");
+            return;
+        }
+        exchange.getRequestBody().readAllBytes();
+        if (simulate(exchange, visionProfile)) return;
+        JsonObject json = new JsonObject();
+        json.addProperty("description", cannedDescription);
+        sendJson(exchange, 200, json.toString());
+    }
+
+    private void handleGemini(HttpExchange exchange) throws IOException, InterruptedException {
+        exchange.getRequestBody().readAllBytes();
+        if (simulate(exchange, languageProfile)) return;
+        Map<String, Object> payload = Map.of(
+            "candidates", List.of(Map.of(
+                "content", Map.of("parts", List.of(Map.of("text", nextCannedOutput())))
+            ))
+        );
+        sendJson(exchange, 200, gson.toJson(payload));
+    }
+
+    private void handleSynthesize(HttpExchange exchange) throws IOException, InterruptedException {
+        JsonObject body = readJson(exchange);
+        String text = body.has("text") ? body.get("text").getAsString() : "";
+        if (text.isEmpty()) {
+            sendJson(exchange, 400, "{\"error\":\"Missing 'text' in request body\"}");
+            return;
+        }
+        if (simulate(exchange, ttsProfile)) return;
+        byte[] wav = buildToneWav(Math.max(0.2, text.length() * ttsSecondsPerChar));
+        exchange.getResponseHeaders().set("Content-Type", "audio/wav");
+        exchange.sendResponseHeaders(200, wav.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(wav);
+        }
+    }
+
+    /**
+     * Sends the tone as framed raw PCM, one frame per sentence with a pause between them,
+     * the way the sidecar streams sentences as they are synthesized.
+     */
+    private void handleSynthesizeStream(HttpExchange exchange) throws IOException, InterruptedException {
+        JsonObject body = readJson(exchange);
+        String text = body.has("text") ? body.get("text").getAsString() : "";
+        if (text.isEmpty()) {
+            sendJson(exchange, 400, "{\"error\":\"Missing 'text' in request body\"}");
+            return;
+        }
+        if (simulate(exchange, ttsProfile)) return;
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(PcmStreamReader.MAGIC).putInt(TTS_SAMPLE_RATE).putShort((short) 1).putShort((short) 16);
+            out.write(header.array());
+            out.flush();
+            String[] sentences = text.split("(?<=[.!?])\\s+");
+            for (int i = 0; i < sentences.length; i++) {
+                if (i > 0) {
+                    long pause;
+                    synchronized (random) { pause = ttsProfile.sampleLatencyMs(random) / 2; }
+                    Thread.sleep(pause);
+                }
+                byte[] pcm = buildTonePcm(Math.max(0.2, sentences[i].length() * ttsSecondsPerChar));
+                ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(pcm.length);
+                out.write(length.array());
+                out.write(pcm);
+                out.flush();
+            }
+            out.write(new byte[4]); // end marker
+        }
+    }
+
+    // === Helpers ===
+
+    /**
+     * Sleeps for a sampled latency and sends a 500 when the profile decides to fail.
+     * Returns true when the response was already sent.
+     */
+    private boolean simulate(HttpExchange exchange, Profile profile) throws IOException, InterruptedException {
+        long latency;
+        boolean fail;
+        synchronized (random) {
+            latency = profile.sampleLatencyMs(random);
+            fail = profile.shouldFail(random);
+        }
+        if (latency > 0) Thread.sleep(latency);
+        if (fail) {
+            sendJson(exchange, 500, "{\"error\":\"Simulated backend failure\"}");
+            return true;
+        }
+        return false;
+    }
+
+    private String nextCannedOutput() {
+        List<String> outputs = cannedOutputs;
+        if (outputs.isEmpty()) return "";
+        return outputs.get(Math.floorMod(outputIndex.getAndIncrement(), outputs.size()));
+    }
+
+    private static JsonObject readJson(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            return JsonParser.parseString(body).getAsJsonObject();
+        } catch (Exception e) {
+            return new JsonObject();
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Builds a quiet 16-bit mono sine tone.
+     */
+    private static byte[] buildTonePcm(double seconds) {
+        int frames = (int) (seconds * TTS_SAMPLE_RATE);
+        ByteBuffer pcm = ByteBuffer.allocate(frames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < frames; i++) {
+            pcm.putShort((short) (Math.sin(2 * Math.PI * 440 * i / TTS_SAMPLE_RATE) * 3000));
+        }
+        return pcm.array();
+    }
+
+    /**
+     * Builds the tone wrapped in a WAV header.
+     */
+    private static byte[] buildToneWav(double seconds) {
+        byte[] pcm = buildTonePcm(seconds);
+        int frames = pcm.length / 2;
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + frames * 2)
+              .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+              .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+              .putShort((short) 1).putShort((short) 1)
+              .putInt(TTS_SAMPLE_RATE).putInt(TTS_SAMPLE_RATE * 2)
+              .putShort((short) 2).putShort((short) 16)
+              .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(frames * 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(44 + frames * 2);
+        out.writeBytes(header.array());
+        out.writeBytes(pcm);
+        return out.toByteArray();
+    }
+
+    /**
+     * Runs the mock backend standalone.
+     * Options: --port N, --latency MEAN_MS, --spread MS, --distribution FIXED|UNIFORM|NORMAL|LOG_NORMAL,
+     * --error-rate 0..1, --outputs FILE (one canned model output per line)
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 8089;
+        boolean customProfile = false;
+        long latency = 1000;
+        long spread = 0;
+        Distribution distribution = Distribution.LOG_NORMAL;
+        double errorRate = 0.0;
+        List<String> outputs = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(value);
+                case "--latency" -> { latency = Long.parseLong(value); customProfile = true; }
+                case "--spread" -> { spread = Long.parseLong(value); customProfile = true; }
+                case "--distribution" -> { distribution = Distribution.valueOf(value.toUpperCase()); customProfile = true; }
+                case "--error-rate" -> { errorRate = Double.parseDouble(value); customProfile = true; }
+                case "--outputs" -> outputs = new ArrayList<>(Files.readAllLines(Path.of(value), StandardCharsets.UTF_8));
+                default -> System.err.println("Unknown option: " + args[i]);
+            }
+        }
+
+        MockBackendServer mock = new MockBackendServer();
+        if (customProfile) {
+            Profile profile = new Profile(distribution, latency, spread, errorRate);
+            mock.setLanguageProfile(profile);
+            mock.setVisionProfile(profile);
+            mock.setTtsProfile(profile);
+        }
+        if (outputs != null) {
+            outputs.removeIf(String::isBlank);
+            mock.setCannedOutputs(outputs);
+        }
+        mock.start(port);
+    }
+}
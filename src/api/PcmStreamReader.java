@@ -0,0 +1,120 @@
+package api;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the raw PCM stream served by the sidecar's /synthesize_stream endpoint.
+ *
+ * Layout (all integers little-endian):
+ *  - header: "PCMS", uint32 sample rate, uint16 channels, uint16 bits per sample
+ *  - frames: uint32 byte length followed by that many bytes of interleaved PCM
+ *  - a zero-length frame ends the stream
+ *
+ * The sidecar writes one or more frames per sentence as soon as it is synthesized, so playback
+ * can start before the rest of the utterance exists. This stream yields just the PCM bytes.
+ */
+public class PcmStreamReader extends FilterInputStream {
+
+    static final byte[] MAGIC = "PCMS".getBytes(StandardCharsets.US_ASCII);
+
+    private long frameRemaining = 0;
+    private boolean ended = false;
+    private boolean endedCleanly = false; // the zero-length end marker was read
+
+    /**
+     * Wraps a stream positioned just after the header.
+     */
+    PcmStreamReader(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * True once the stream has ended with its end marker. A stream that simply stops (the sidecar
+     * failed after sending headers) plays what arrived but is incomplete, and must not be cached.
+     */
+    public boolean isEndedCleanly() {
+        return endedCleanly;
+    }
+
+    /**
+     * Checks a complete framed stream, header included, for its end marker.
+     */
+    static boolean isComplete(byte[] stream) {
+        if (stream.length < 12 || !isMagic(Arrays.copyOf(stream, 4))) return false;
+        PcmStreamReader reader = new PcmStreamReader(new java.io.ByteArrayInputStream(stream, 12, stream.length - 12));
+        try {
+            byte[] buf = new byte[8192];
+            while (reader.read(buf, 0, buf.length) != -1) {
+                // walk the frames
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return reader.isEndedCleanly();
+    }
+
+    static boolean isMagic(byte[] first4) {
+        return Arrays.equals(first4, MAGIC);
+    }
+
+    /**
+     * Reads the rest of the header after the magic and describes it as headerless 16-bit PCM.
+     */
+    static StreamingAudioPlayer.WavInfo readHeader(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(8);
+        if (header.length < 8) throw new EOFException("Truncated PCM stream header");
+        int sampleRate = (header[0] & 0xff) | ((header[1] & 0xff) << 8) | ((header[2] & 0xff) << 16) | ((header[3] & 0xff) << 24);
+        int channels = (header[4] & 0xff) | ((header[5] & 0xff) << 8);
+        int bits = (header[6] & 0xff) | ((header[7] & 0xff) << 8);
+        return new StreamingAudioPlayer.WavInfo(1, channels, sampleRate, bits, -1);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        while (frameRemaining == 0) {
+            if (ended || !nextFrame()) return -1;
+        }
+        int n = in.read(b, off, (int) Math.min(len, frameRemaining));
+        if (n == -1) throw new EOFException("PCM stream ended inside a frame");
+        frameRemaining -= n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(frameRemaining, in.available());
+    }
+
+    /**
+     * Reads the next frame length. Returns false at the end marker.
+     */
+    private boolean nextFrame() throws IOException {
+        byte[] length = in.readNBytes(4);
+        if (length.length < 4) {
+            // Sidecar stopped mid-utterance (e.g. synthesis error); play what arrived
+            System.err.println("PCM stream ended without end marker");
+            ended = true;
+            return false;
+        }
+        frameRemaining = (length[0] & 0xff) | ((length[1] & 0xff) << 8) | ((length[2] & 0xff) << 16) | ((long) (length[3] & 0xff) << 24);
+        if (frameRemaining == 0) {
+            ended = true;
+            endedCleanly = true;
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package api;
+
+import core.AppState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthesizes a personality's stock phrases into the AudioCache in the background, so the first
+ * comments after startup or a personality switch neither wait for a cold sidecar model nor for synthesis.
+ * Runs one phrase at a time and steps aside while real speech is playing.
+ */
+public class PhrasePrefetcher {
+    private static final long BUSY_WAIT_MS = 250;
+
+    private static List<String> pendingPhrases = List.of();
+    private static String pendingVoice = null;
+    private static long generation = 0;
+    private static Thread worker = null;
+
+    static {
+        // Phrases requested while the sidecar was down are fetched once it answers
+        TtsHealthMonitor.addStatusListener(PhrasePrefetcher::startIfReady);
+    }
+
+    /**
+     * Replaces any prefetch in progress with these phrases for the given voice.
+     */
+    public static void request(List<String> phrases, String voice) {
+        synchronized (PhrasePrefetcher.class) {
+            pendingPhrases = phrases != null ? List.copyOf(phrases) : List.of();
+            pendingVoice = voice;
+            generation++;
+        }
+        startIfReady();
+    }
+
+    private static void startIfReady() {
+        List<String> phrases;
+        String voice;
+        long gen;
+        synchronized (PhrasePrefetcher.class) {
+            // On first run no voice is chosen until the sidecar has listed its voices
+            voice = pendingVoice != null ? pendingVoice : AppState.selectedTtsCharacterVoice;
+            if (pendingPhrases.isEmpty() || voice == null) return;
+            if (!AppState.useTTS() || !AppState.isTtsApiAvailable) return;
+            phrases = pendingPhrases;
+            gen = generation;
+            pendingPhrases = List.of();
+            if (worker != null && worker.isAlive()) {
+                // The running worker notices the new generation and hands over
+                worker.interrupt();
+            }
+            worker = new Thread(() -> prefetch(phrases, voice, gen), "tts-prefetch");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private static void prefetch(List<String> phrases, String voice, long gen) {
+        // Cache keys are per chunk, exactly as speak() will look them up
+        List<String> chunks = new ArrayList<>();
+        for (String phrase : phrases) chunks.addAll(SpeechChunker.split(phrase));
+
+        int fetched = 0;
+        try {
+            for (String chunk : chunks) {
+                while (SpeechService.isBusy() || AppState.isSpeaking) {
+                    Thread.sleep(BUSY_WAIT_MS);
+                }
+                if (isStale(gen) || !AppState.isTtsApiAvailable) return;
+                if (TtsApiClient.prefetch(chunk, voice, 1.0)) fetched++;
+            }
+            if (fetched > 0) {
+                System.out.println("Prefetched " + fetched + " phrase chunk(s) for voice " + voice + ". " + AudioCache.getStats());
+            }
+        } catch (InterruptedException e) {
+            // Superseded by a newer request
+        }
+    }
+
+    private static synchronized boolean isStale(long gen) {
+        return gen != generation;
+    }
+}
@@ -0,0 +1,40 @@
+package api;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets another thread stop an utterance that is being synthesized or played.
+ * Cancelling aborts the pending synthesis request and flushes audio already queued on the line.
+ */
+public class PlaybackHandle {
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private volatile Future<?> pendingRequest;
+    private volatile StreamingAudioPlayer.Session session;
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) return;
+        Future<?> request = pendingRequest;
+        if (request != null) request.cancel(true);
+        StreamingAudioPlayer.Session s = session;
+        if (s != null) s.cancel();
+    }
+
+    /**
+     * The HTTP exchange to abort on cancel: the sendAsync future itself, since cancelling a future
+     * derived from it does not reach the connection.
+     */
+    void setPendingRequest(Future<?> request) {
+        this.pendingRequest = request;
+        if (request != null && isCancelled()) request.cancel(true);
+    }
+
+    void setSession(StreamingAudioPlayer.Session session) {
+        this.session = session;
+        if (session != null && isCancelled()) session.cancel();
+    }
+}
@@ -0,0 +1,160 @@
+package api;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The lifetime of one thinking cycle's backend work: a deadline derived from when its frame was
+ * captured, plus the HTTP requests it currently has in flight.
+ * While a scope is entered on a thread, backend calls made through {@link #send} on that thread
+ * are bounded by its deadline and are aborted as soon as the scope is cancelled (for example
+ * because the screen changed and the answer would be about something no longer shown).
+ */
+public class RequestScope {
+
+    private static final ThreadLocal<RequestScope> CURRENT = new ThreadLocal<>();
+    // Scopes entered on some thread right now, so they can all be cancelled at once
+    private static final Set<RequestScope> ENTERED = ConcurrentHashMap.newKeySet();
+
+    // Cancel reason of a scope whose deadline passed; other reasons come from cancel()
+    public static final String DEADLINE_PASSED = "deadline passed";
+
+    private final String name;
+    private final long capturedAt;
+    private final long deadline;
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile String cancelReason = null;
+
+    /**
+     * Thrown by {@link #send} when the scope is cancelled or its deadline passes.
+     */
+    public static class CancelledException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public CancelledException(String message) {
+            super(message);
+        }
+    }
+
+    public RequestScope(String name, long capturedAt, long deadline) {
+        this.name = name;
+        this.capturedAt = capturedAt;
+        this.deadline = deadline;
+    }
+
+    /**
+     * The scope entered on this thread, or null.
+     */
+    public static RequestScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes this the current scope of the calling thread until {@link #exit}.
+     */
+    public void enter() {
+        CURRENT.set(this);
+        ENTERED.add(this);
+    }
+
+    public void exit() {
+        if (CURRENT.get() == this) CURRENT.remove();
+        ENTERED.remove(this);
+    }
+
+    /**
+     * Cancels every entered scope, aborting all backend requests they have in flight.
+     * Used when the assistant stops or the personality changes.
+     */
+    public static void cancelAll(String reason) {
+        for (RequestScope scope : ENTERED) {
+            scope.cancel(reason);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public long getAgeMs() {
+        return System.currentTimeMillis() - capturedAt;
+    }
+
+    /**
+     * True until the scope is cancelled or its deadline passes.
+     */
+    public boolean isActive() {
+        return cancelReason == null && System.currentTimeMillis() < deadline;
+    }
+
+    /**
+     * Why the scope is no longer active, or null while it is.
+     */
+    public String getCancelReason() {
+        String reason = cancelReason;
+        if (reason != null) return reason;
+        return System.currentTimeMillis() >= deadline ? DEADLINE_PASSED : null;
+    }
+
+    /**
+     * Cancels the scope and aborts its in-flight requests. Only the first reason is kept.
+     */
+    public void cancel(String reason) {
+        synchronized (this) {
+            if (cancelReason != null) return;
+            cancelReason = reason;
+        }
+        System.out.println("[" + name + "] Cancelled: " + reason + " (" + inFlight.size() + " request(s) in flight)");
+        for (CompletableFuture<?> future : inFlight) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Sends a request within the calling thread's scope, if any: it is abandoned when the scope is
+     * cancelled or its deadline passes. Without a scope this is a plain blocking send.
+     */
+    static <T> HttpResponse<T> send(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        RequestScope scope = CURRENT.get();
+        return scope != null ? scope.sendWithin(client, request, handler) : client.send(request, handler);
+    }
+
+    private <T> HttpResponse<T> sendWithin(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        if (!isActive()) throw new CancelledException("Request not sent: " + getCancelReason());
+        CompletableFuture<HttpResponse<T>> future = client.sendAsync(request, handler);
+        inFlight.add(future);
+        try {
+            // cancel() may have run before the future was registered
+            if (cancelReason != null) future.cancel(true);
+            long remaining = deadline - System.currentTimeMillis();
+            return future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(DEADLINE_PASSED);
+            throw new CancelledException("Request abandoned: " + DEADLINE_PASSED);
+        } catch (CancellationException e) {
+            throw new CancelledException("Request abandoned: " + getCancelReason());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } finally {
+            inFlight.remove(future);
+        }
+    }
+}
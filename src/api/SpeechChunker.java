@@ -0,0 +1,70 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text to be spoken into sentence-sized pieces so synthesis of the next piece
+ * can overlap playback of the current one.
+ */
+public class SpeechChunker {
+
+    // Pieces shorter than this are merged with the following one; tiny requests cost more than they save
+    private static final int MIN_CHUNK_CHARS = 24;
+    // Sentences longer than this are split again at clause boundaries
+    private static final int MAX_CHUNK_CHARS = 160;
+
+    public static List<String> split(String text) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) return chunks;
+
+        List<String> pieces = new ArrayList<>();
+        for (String sentence : splitAfter(text.trim(), ".!?\u2026")) {
+            if (sentence.length() > MAX_CHUNK_CHARS) {
+                pieces.addAll(splitAfter(sentence, ",;:"));
+            } else {
+                pieces.add(sentence);
+            }
+        }
+
+        StringBuilder pending = new StringBuilder();
+        for (String piece : pieces) {
+            if (pending.length() > 0) pending.append(' ');
+            pending.append(piece);
+            if (pending.length() >= MIN_CHUNK_CHARS) {
+                chunks.add(pending.toString());
+                pending.setLength(0);
+            }
+        }
+        if (pending.length() > 0) {
+            // Fold a short tail into the previous chunk rather than synthesizing it alone
+            if (!chunks.isEmpty()) {
+                int last = chunks.size() - 1;
+                chunks.set(last, chunks.get(last) + " " + pending);
+            } else {
+                chunks.add(pending.toString());
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Splits after any of the delimiter characters when followed by whitespace, keeping the delimiter.
+     */
+    private static List<String> splitAfter(String text, String delimiters) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            boolean boundary = delimiters.indexOf(text.charAt(i)) >= 0
+                    && (i + 1 == text.length() || Character.isWhitespace(text.charAt(i + 1)));
+            if (boundary) {
+                String part = text.substring(start, i + 1).trim();
+                if (!part.isEmpty()) parts.add(part);
+                start = i + 1;
+            }
+        }
+        String tail = text.substring(start).trim();
+        if (!tail.isEmpty()) parts.add(tail);
+        return parts;
+    }
+}
@@ -0,0 +1,175 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous front end for TTS playback. Callers submit an utterance and get a future back
+ * instead of blocking until it has been spoken. A single worker plays utterances one at a time
+ * from a small priority queue:
+ * - a newer utterance supersedes queued ones of the same or lower priority (a stale comment is not worth saying late)
+ * - an utterance with higher priority than the one playing interrupts it (barge-in)
+ * - an utterance still waiting when its freshness bound passes is dropped unheard
+ */
+public class SpeechService {
+
+    public enum Priority { LOW, NORMAL, HIGH }
+
+    private static final int MAX_QUEUED = 4;
+
+    private static final class Utterance {
+        final String text;
+        final String voice;
+        final double speed;
+        final String language;
+        final Priority priority;
+        final long sequence;
+        final long notAfter; // wall-clock ms after which it is no longer worth starting
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+        final PlaybackHandle handle = new PlaybackHandle();
+
+        Utterance(String text, String voice, double speed, String language, Priority priority, long sequence, long notAfter) {
+            this.text = text;
+            this.voice = voice;
+            this.speed = speed;
+            this.language = language;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.notAfter = notAfter;
+        }
+    }
+
+    // Highest priority first, then oldest first
+    private static final PriorityQueue<Utterance> queue = new PriorityQueue<>(
+            Comparator.comparing((Utterance u) -> u.priority).reversed().thenComparingLong(u -> u.sequence));
+    private static final AtomicLong sequence = new AtomicLong();
+    private static volatile Utterance current = null;
+    private static Thread worker = null;
+
+    /**
+     * Queues text for speaking. The future completes when playback ends and is cancelled
+     * if the utterance is superseded, interrupted or dropped. Cancelling the future stops playback.
+     */
+    public static CompletableFuture<Void> submit(String text, String voice, double speed, String language, Priority priority) {
+        return submit(text, voice, speed, language, priority, Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as above, but the utterance is dropped if it has not started playing by {@code notAfter}
+     * (wall-clock ms), e.g. a comment on a screen that is already gone.
+     */
+    public static CompletableFuture<Void> submit(String text, String voice, double speed, String language, Priority priority, long notAfter) {
+        Utterance utterance = new Utterance(text, voice, speed, language, priority, sequence.incrementAndGet(), notAfter);
+        utterance.completion.whenComplete((r, t) -> {
+            if (utterance.completion.isCancelled()) utterance.handle.cancel();
+        });
+
+        List<Utterance> dropped = new ArrayList<>();
+        synchronized (queue) {
+            Iterator<Utterance> it = queue.iterator();
+            while (it.hasNext()) {
+                Utterance queued = it.next();
+                if (queued.priority.compareTo(priority) <= 0) {
+                    it.remove();
+                    dropped.add(queued);
+                }
+            }
+            if (queue.size() >= MAX_QUEUED) {
+                // Queue is full of higher-priority speech; this one would only be heard late
+                dropped.add(utterance);
+            } else {
+                queue.add(utterance);
+                queue.notifyAll();
+            }
+            ensureWorker();
+        }
+        for (Utterance u : dropped) {
+            System.out.println("Speech dropped (superseded): \"" + u.text + "\"");
+            u.completion.cancel(false);
+        }
+
+        Utterance playing = current;
+        if (playing != null && playing.priority.compareTo(priority) < 0) {
+            System.out.println("Speech barge-in: interrupting \"" + playing.text + "\"");
+            playing.completion.cancel(false);
+        }
+        return utterance.completion;
+    }
+
+    public static CompletableFuture<Void> submit(String text, String voice, double speed, String language) {
+        return submit(text, voice, speed, language, Priority.NORMAL);
+    }
+
+    /**
+     * Stops the utterance being played and drops everything queued.
+     */
+    public static void cancelAll() {
+        List<Utterance> dropped;
+        Utterance playing;
+        synchronized (queue) {
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            playing = current;
+        }
+        for (Utterance u : dropped) u.completion.cancel(false);
+        // Cancelling the future also cancels its playback handle
+        if (playing != null) playing.completion.cancel(false);
+    }
+
+    /**
+     * Returns true while something is playing or waiting to be played.
+     */
+    public static boolean isBusy() {
+        synchronized (queue) {
+            return current != null || !queue.isEmpty();
+        }
+    }
+
+    private static void ensureWorker() {
+        if (worker != null && worker.isAlive()) return;
+        worker = new Thread(SpeechService::runWorker, "speech-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private static void runWorker() {
+        while (true) {
+            Utterance next;
+            synchronized (queue) {
+                while (queue.isEmpty()) {
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                next = queue.poll();
+                current = next;
+            }
+            try {
+                if (System.currentTimeMillis() > next.notAfter) {
+                    System.out.println("Speech dropped (stale): \"" + next.text + "\"");
+                    next.completion.cancel(false);
+                } else if (!core.AppState.isTtsApiAvailable) {
+                    // Sidecar is down; the health monitor flips this back once it answers again
+                    System.out.println("TTS API not available, skipping speech: \"" + next.text + "\"");
+                } else if (!next.completion.isDone()) {
+                    TtsApiClient.speak(next.text, next.voice, next.speed, next.language, next.handle);
+                }
+                next.completion.complete(null);
+            } catch (Throwable t) {
+                next.completion.completeExceptionally(t);
+            } finally {
+                synchronized (queue) {
+                    current = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package api;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineEvent;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plays a WAV stream while it is still arriving: the header is parsed off the InputStream
+ * and PCM is written to a SourceDataLine chunk by chunk, converted to 16-bit signed PCM.
+ * Framed raw PCM from the sidecar's streaming endpoint (see PcmStreamReader) is accepted as well.
+ * Listeners are notified when the line actually starts producing sound and when it has drained.
+ */
+public class StreamingAudioPlayer {
+
+    public interface PlaybackListener {
+        void onPlaybackStarted();
+        void onPlaybackFinished();
+    }
+
+    /**
+     * Source sample layout as read from the WAV header.
+     */
+    static final class WavInfo {
+        final int formatTag;      // 1 = integer PCM, 3 = IEEE float
+        final int channels;
+        final int sampleRate;
+        final int bitsPerSample;
+        final long dataLength;    // -1 when unknown (streamed WAV)
+
+        WavInfo(int formatTag, int channels, int sampleRate, int bitsPerSample, long dataLength) {
+            this.formatTag = formatTag;
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+            this.bitsPerSample = bitsPerSample;
+            this.dataLength = dataLength;
+        }
+
+        int frameSize() {
+            return channels * (bitsPerSample / 8);
+        }
+
+        AudioFormat targetFormat() {
+            return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sampleRate, 16, channels, channels * 2, sampleRate, false);
+        }
+    }
+
+    /**
+     * Reads a WAV stream to its end and plays it. Blocks until playback has drained.
+     */
+    public static void play(InputStream in, PlaybackListener listener) throws IOException, LineUnavailableException {
+        try (Session session = new Session(listener)) {
+            session.write(in);
+        }
+    }
+
+    /**
+     * Plays several WAV streams back to back on one line so consecutive pieces join without a gap.
+     * Lines come from AudioOutput and stay open after the session; only a format change switches lines.
+     */
+    public static final class Session implements AutoCloseable {
+        private final PlaybackListener listener;
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private final LineListener startListener;
+        private volatile AudioOutput.PooledLine output;
+
+        public Session(PlaybackListener listener) {
+            this.listener = listener;
+            this.startListener = event -> {
+                // START fires once the line is engaged in actual output, not when data is merely queued
+                if (event.getType() == LineEvent.Type.START && started.compareAndSet(false, true) && listener != null) {
+                    listener.onPlaybackStarted();
+                }
+            };
+        }
+
+        /**
+         * Appends one WAV or framed PCM stream to the playback. Returns once its last chunk has been queued on the line.
+         */
+        public void write(InputStream in) throws IOException, LineUnavailableException {
+            byte[] magic = readFully(in, 4);
+            WavInfo info;
+            if (PcmStreamReader.isMagic(magic)) {
+                info = PcmStreamReader.readHeader(in);
+                in = new PcmStreamReader(in);
+            } else {
+                info = readWavHeader(magic, in);
+            }
+            AudioFormat target = info.targetFormat();
+            if (output == null || !target.matches(output.getFormat())) {
+                finishLine();
+                output = AudioOutput.acquire(target);
+                output.getLine().addLineListener(startListener);
+            }
+            writePcm(in, info, output, cancelled);
+        }
+
+        /**
+         * Stops playback from another thread: pending writes return early and queued audio is discarded.
+         */
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) return;
+            AudioOutput.PooledLine current = output;
+            if (current != null) current.getLine().flush();
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        /**
+         * Waits for queued audio to finish, hands the line back and notifies the listener.
+         */
+        @Override
+        public void close() {
+            finishLine();
+            if (listener != null) listener.onPlaybackFinished();
+        }
+
+        private void finishLine() {
+            if (output == null) return;
+            SourceDataLine line = output.getLine();
+            if (cancelled.get()) {
+                line.flush();
+            } else {
+                line.drain();
+            }
+            // Stopping lets the next session's first write raise a fresh START event
+            line.stop();
+            line.removeLineListener(startListener);
+            AudioOutput.release(output);
+            output = null;
+        }
+    }
+
+    /**
+     * Copies the data chunk to the line, converting whole frames and carrying partial ones over.
+     * Uses the pooled line's buffers so no per-utterance allocation or AudioInputStream chain is needed.
+     * Stops at the next chunk boundary once {@code cancelled} is set.
+     */
+    static void writePcm(InputStream in, WavInfo info, AudioOutput.PooledLine output, AtomicBoolean cancelled) throws IOException {
+        int frameSize = info.frameSize();
+        if (frameSize <= 0) throw new IOException("Unsupported WAV frame size");
+        SourceDataLine line = output.getLine();
+        byte[] src = output.readBuffer;
+        byte[] dst = output.convertBuffer;
+        int srcLength = src.length - src.length % frameSize;
+        boolean passThrough = info.formatTag == 1 && info.bitsPerSample == 16;
+        long remaining = info.dataLength >= 0 ? info.dataLength : Long.MAX_VALUE;
+        int carried = 0;
+        // The line reports START only once written data actually begins to play
+        line.start();
+        while (remaining > 0 && !cancelled.get()) {
+            int toRead = (int) Math.min(srcLength - carried, remaining);
+            int n = in.read(src, carried, toRead);
+            if (n == -1) break;
+            remaining -= n;
+            int available = carried + n;
+            int whole = available - available % frameSize;
+            if (whole > 0) {
+                if (passThrough) {
+                    line.write(src, 0, whole);
+                } else {
+                    int converted = convertTo16Bit(src, whole, info, dst);
+                    line.write(dst, 0, converted);
+                }
+            }
+            carried = available - whole;
+            if (carried > 0) System.arraycopy(src, whole, src, 0, carried);
+        }
+    }
+
+    /**
+     * Converts {@code length} bytes of whole frames into 16-bit little-endian PCM. Returns bytes written.
+     */
+    static int convertTo16Bit(byte[] src, int length, WavInfo info, byte[] dst) throws IOException {
+        int bytesPerSample = info.bitsPerSample / 8;
+        int out = 0;
+        for (int i = 0; i + bytesPerSample <= length; i += bytesPerSample) {
+            int sample;
+            if (info.formatTag == 3 && bytesPerSample == 4) {
+                float f = Float.intBitsToFloat(readIntLE(src, i));
+                sample = Math.round(Math.max(-1f, Math.min(1f, f)) * 32767f);
+            } else if (info.formatTag == 3 && bytesPerSample == 8) {
+                long bits = (readIntLE(src, i) & 0xffffffffL) | ((long) readIntLE(src, i + 4) << 32);
+                double d = Double.longBitsToDouble(bits);
+                sample = (int) Math.round(Math.max(-1d, Math.min(1d, d)) * 32767d);
+            } else if (info.formatTag == 1 && bytesPerSample == 1) {
+                sample = ((src[i] & 0xff) - 128) << 8;
+            } else if (info.formatTag == 1 && bytesPerSample >= 2) {
+                // Keep the two most significant bytes of 16/24/32-bit little-endian samples
+                int hi = i + bytesPerSample - 1;
+                sample = (src[hi] << 8) | (src[hi - 1] & 0xff);
+            } else {
+                throw new IOException("Unsupported WAV encoding: format " + info.formatTag + ", " + info.bitsPerSample + " bits");
+            }
+            dst[out++] = (byte) sample;
+            dst[out++] = (byte) (sample >> 8);
+        }
+        return out;
+    }
+
+    /**
+     * Parses the RIFF header up to the start of the data chunk, leaving the stream positioned on the samples.
+     * The first four bytes have already been read by the caller to tell WAV from framed PCM.
+     */
+    static WavInfo readWavHeader(byte[] magic, InputStream in) throws IOException {
+        byte[] rest = readFully(in, 8);
+        if (!"RIFF".equals(ascii(magic, 0)) || !"WAVE".equals(ascii(rest, 4))) {
+            throw new IOException("Not a RIFF/WAVE stream");
+        }
+        int formatTag = -1, channels = 0, sampleRate = 0, bits = 0;
+        while (true) {
+            byte[] chunkHeader = readFully(in, 8);
+            String id = ascii(chunkHeader, 0);
+            long size = readIntLE(chunkHeader, 4) & 0xffffffffL;
+            if ("fmt ".equals(id)) {
+                byte[] fmt = readFully(in, (int) size);
+                formatTag = readShortLE(fmt, 0);
+                channels = readShortLE(fmt, 2);
+                sampleRate = readIntLE(fmt, 4);
+                bits = readShortLE(fmt, 14);
+                if (formatTag == 0xFFFE && fmt.length >= 26) {
+                    // WAVE_FORMAT_EXTENSIBLE: the real format tag leads the sub-format GUID
+                    formatTag = readShortLE(fmt, 24);
+                }
+                if ((size & 1) == 1) skipFully(in, 1);
+            } else if ("data".equals(id)) {
+                if (formatTag == -1) throw new IOException("WAV data chunk before fmt chunk");
+                // Streaming writers leave the size as 0 or 0xFFFFFFFF when it is not known up front
+                long dataLength = (size == 0 || size == 0xffffffffL) ? -1 : size;
+                return new WavInfo(formatTag, channels, sampleRate, bits, dataLength);
+            } else {
+                skipFully(in, size + (size & 1));
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] buf = in.readNBytes(length);
+        if (buf.length < length) throw new EOFException("Truncated WAV header");
+        return buf;
+    }
+
+    private static void skipFully(InputStream in, long length) throws IOException {
+        in.skipNBytes(length);
+    }
+
+    private static String ascii(byte[] b, int offset) {
+        return new String(b, offset, 4, StandardCharsets.US_ASCII);
+    }
+
+    private static int readShortLE(byte[] b, int offset) {
+        return (b[offset] & 0xff) | ((b[offset + 1] & 0xff) << 8);
+    }
+
+    private static int readIntLE(byte[] b, int offset) {
+        return (b[offset] & 0xff) | ((b[offset + 1] & 0xff) << 8) | ((b[offset + 2] & 0xff) << 16) | ((b[offset + 3] & 0xff) << 24);
+    }
+}
@@ -1,7 +1,6 @@
 package api;
 
 import com.google.gson.Gson;
-import javax.sound.sampled.*;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URI;
@@ -10,6 +9,7 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import core.AppState;
 
 /**
@@ -20,7 +20,9 @@ public class TtsApiClient {
 
     private static final HttpClient client = HttpClient.newHttpClient();
     private static final Gson gson = new Gson();
-    private static final String TTS_API_URL = "http://localhost:5005";
+    private static final String TTS_API_URL = System.getProperty("assistant.ttsUrl", "http://localhost:5005");
+    // Whether the sidecar serves /synthesize_stream; null until the first synthesis request
+    private static volatile Boolean pcmStreamSupported = null;
 
     // Interface for UI callbacks to avoid circular dependencies
     public interface UICallback {
@@ -46,31 +48,9 @@ public class TtsApiClient {
         return uiCallback;
     }
 
-    /**
-     * Checks if the TTS API server is running and available
-     */
-    public static boolean isApiAvailable() {
-        try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(TTS_API_URL + "/characters"))
-                    .timeout(java.time.Duration.ofSeconds(3))  // Short timeout for quick check
-                    .GET().build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 200;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     public static List<String> getAvailableCharacters() {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(TTS_API_URL + "/characters"))
-                    .GET().build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 200) {
-                return gson.fromJson(response.body(), new com.google.gson.reflect.TypeToken<List<String>>() {}.getType());
-            }
+            return fetchCharacters(null);
         } catch (Exception e) {
             // Don't print stack trace for connection errors - TTS API might just not be running
             System.out.println("Could not connect to TTS API: " + e.getClass().getSimpleName());
@@ -78,93 +58,236 @@ public class TtsApiClient {
         return null;
     }
 
+    /**
+     * Fetches the voice list, throwing on connection errors. Returns null on a non-200 reply.
+     */
+    static List<String> fetchCharacters(java.time.Duration timeout) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(TTS_API_URL + "/characters"))
+                .GET();
+        if (timeout != null) builder.timeout(timeout);
+        HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 200) {
+            return gson.fromJson(response.body(), new com.google.gson.reflect.TypeToken<List<String>>() {}.getType());
+        }
+        return null;
+    }
+
+    /**
+     * Speaks the text, splitting it into sentences so the next sentence is synthesized
+     * while the current one plays. All sentences share one audio line, so there is no gap between them.
+     */
     public static void speak(String text, String characterName, double speed, String language) {
-        try {
-            // Use the characterName directly from the API (no more language mapping)
-            // The characterName now comes from the Coqui TTS API speakers list
-
-            Map<String, Object> payloadMap = Map.of(
-                    "text", text,
-                    "character", characterName,  // Use characterName directly (jenny_female, bella_female, etc.)
-                    "speed", speed
-            );
-            String jsonPayload = gson.toJson(payloadMap);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(TTS_API_URL + "/synthesize"))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonPayload))
-                    .build();
-
-            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
-
-            if (response.statusCode() == 200) {
-                // Show speaking image and bubble as soon as we get a valid response (when TTS starts)
+        speak(text, characterName, speed, language, new PlaybackHandle());
+    }
+
+    /**
+     * Same as {@link #speak(String, String, double, String)}, but stops early once the handle is cancelled.
+     */
+    public static void speak(String text, String characterName, double speed, String language, PlaybackHandle handle) {
+        List<String> chunks = SpeechChunker.split(text);
+        if (chunks.isEmpty()) return;
+
+        Synthesis next = requestUnlessCached(chunks.get(0), characterName, speed);
+        StreamingAudioPlayer.Session session = new StreamingAudioPlayer.Session(new StreamingAudioPlayer.PlaybackListener() {
+            @Override
+            public void onPlaybackStarted() {
+                // Show speaking image and bubble when audio actually starts
                 if (uiCallback != null) {
                     uiCallback.showSpeakingImage();
                     uiCallback.showSpeechBubble(text);
                 }
-                AppState.isSpeaking = true;
-
-                byte[] audioBytes = response.body().readAllBytes();
-                InputStream byteArrayInputStream = new ByteArrayInputStream(audioBytes);
-
-                try (AudioInputStream sourceStream = AudioSystem.getAudioInputStream(byteArrayInputStream)) {
-                    AudioFormat sourceFormat = sourceStream.getFormat();
-                    AudioFormat targetFormat = new AudioFormat(
-                            AudioFormat.Encoding.PCM_SIGNED,
-                            sourceFormat.getSampleRate(),
-                            16,
-                            sourceFormat.getChannels(),
-                            sourceFormat.getChannels() * 2,
-                            sourceFormat.getSampleRate(),
-                            false
-                    );
-
-                    try (AudioInputStream convertedStream = AudioSystem.getAudioInputStream(targetFormat, sourceStream)) {
-                        Clip clip = AudioSystem.getClip();
-                        final Object lock = new Object();
-
-            clip.addLineListener(event -> {
-                            if (event.getType() == LineEvent.Type.STOP) {
-                                // Revert to static image and hide bubble when TTS finishes
-                                if (uiCallback != null) {
-                                    uiCallback.showStaticImage();
-                                    uiCallback.hideSpeechBubble();
-                                }
-                AppState.isSpeaking = false;
-                                synchronized (lock) {
-                                    lock.notify();
-                                }
-                            }
-                        });
-
-                        clip.open(convertedStream);
-                        clip.start();
-                        synchronized (lock) {
-                            lock.wait();
-                        }
-                        clip.close();
-                    }
-                }
-            } else {
-                System.err.println("TTS request failed with status: " + response.statusCode());
-                // Ensure UI resets on failure
+            }
+
+            @Override
+            public void onPlaybackFinished() {
+                // Revert to static image and hide bubble when TTS finishes (or fails)
                 if (uiCallback != null) {
                     uiCallback.showStaticImage();
                     uiCallback.hideSpeechBubble();
                 }
-                AppState.isSpeaking = false;
+            }
+        });
+        handle.setSession(session);
+
+        try {
+            for (int i = 0; i < chunks.size() && !handle.isCancelled(); i++) {
+                String chunk = chunks.get(i);
+                Synthesis current = next;
+                // Start synthesizing the following sentence before playing this one
+                next = (i + 1 < chunks.size()) ? requestUnlessCached(chunks.get(i + 1), characterName, speed) : null;
+
+                if (current == null) {
+                    byte[] cached = AudioCache.get(chunk, characterName, speed);
+                    if (cached != null) {
+                        AppState.isSpeaking = true;
+                        session.write(new ByteArrayInputStream(cached));
+                        continue;
+                    }
+                    // Evicted since the check; synthesize it now
+                    current = requestSynthesis(chunk, characterName, speed);
+                }
+
+                current.bind(handle);
+                HttpResponse<InputStream> response = current.response.get();
+                try (InputStream body = response.body()) {
+                    if (response.statusCode() == 200) {
+                        AppState.isSpeaking = true;
+                        AudioCache.Recorder recorder = AudioCache.record(body, chunk, characterName, speed);
+                        session.write(recorder);
+                        // A cut-off sentence is incomplete; do not wait for the rest just to cache it
+                        if (!handle.isCancelled()) recorder.commit();
+                    } else {
+                        System.err.println("TTS request failed with status: " + response.statusCode());
+                    }
+                }
+            }
+            if (handle.isCancelled()) {
+                System.out.println("Speech cancelled: \"" + text + "\"");
+            } else {
+                System.out.println(AudioCache.getStats());
             }
         } catch (Exception e) {
-            System.err.println("Error during TTS playback: " + e.getMessage());
-            e.printStackTrace();
-            // Ensure UI resets on error
-            if (uiCallback != null) {
-                uiCallback.showStaticImage();
-                uiCallback.hideSpeechBubble();
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            if (!handle.isCancelled()) {
+                System.err.println("Error during TTS playback: " + e.getMessage());
+                e.printStackTrace();
+                // The sidecar may have gone away; let the health monitor confirm and re-probe
+                TtsHealthMonitor.reportFailure();
             }
+        } finally {
+            // Abort the prefetched sentence we will not play and release its connection
+            if (next != null) next.discard();
+            session.close();
             AppState.isSpeaking = false;
         }
     }
+
+    /**
+     * Synthesizes one chunk into the audio cache without playing it. Returns true if it was fetched,
+     * false if it was already cached or the request failed.
+     */
+    static boolean prefetch(String text, String characterName, double speed) throws InterruptedException {
+        if (AudioCache.contains(text, characterName, speed)) return false;
+        try {
+            HttpResponse<InputStream> response = requestSynthesis(text, characterName, speed).response.get();
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    System.err.println("TTS prefetch failed with status: " + response.statusCode());
+                    return false;
+                }
+                AudioCache.record(body, text, characterName, speed).commit();
+                return true;
+            }
+        } catch (java.util.concurrent.ExecutionException | java.io.IOException e) {
+            System.err.println("TTS prefetch failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Requests synthesis unless the audio is already cached, in which case null is returned.
+     */
+    private static Synthesis requestUnlessCached(String text, String characterName, double speed) {
+        return AudioCache.contains(text, characterName, speed) ? null : requestSynthesis(text, characterName, speed);
+    }
+
+    /**
+     * Requests synthesis, preferring the sidecar's raw PCM stream and falling back to a WAV
+     * from /synthesize when the sidecar predates the streaming endpoint.
+     */
+    private static Synthesis requestSynthesis(String text, String characterName, double speed) {
+        // Use the characterName directly from the API (no more language mapping)
+        Map<String, Object> payloadMap = Map.of(
+                "text", text,
+                "character", characterName,  // Use characterName directly (jenny_female, bella_female, etc.)
+                "speed", speed
+        );
+        String jsonPayload = gson.toJson(payloadMap);
+
+        if (Boolean.FALSE.equals(pcmStreamSupported)) {
+            CompletableFuture<HttpResponse<InputStream>> exchange = postSynthesis("/synthesize", jsonPayload);
+            return new Synthesis(exchange, exchange);
+        }
+        CompletableFuture<HttpResponse<InputStream>> streamExchange = postSynthesis("/synthesize_stream", jsonPayload);
+        Synthesis synthesis = new Synthesis(streamExchange);
+        synthesis.response = streamExchange.thenCompose(response -> {
+            if (response.statusCode() == 404) {
+                closeQuietly(response.body());
+                System.out.println("TTS server has no /synthesize_stream endpoint; using /synthesize");
+                pcmStreamSupported = false;
+                if (synthesis.discarded) return CompletableFuture.failedFuture(new java.util.concurrent.CancellationException());
+                return synthesis.replaceExchange(postSynthesis("/synthesize", jsonPayload));
+            }
+            if (response.statusCode() == 200) pcmStreamSupported = true;
+            return CompletableFuture.completedFuture(response);
+        });
+        return synthesis;
+    }
+
+    /**
+     * A synthesis request: the response to read, and the HTTP exchange currently behind it.
+     * Cancelling the response future alone would not abort the exchange (it is a dependent of
+     * it), so aborts go to the exchange itself.
+     */
+    private static final class Synthesis {
+        volatile CompletableFuture<HttpResponse<InputStream>> response;
+        private volatile CompletableFuture<HttpResponse<InputStream>> exchange;
+        private volatile PlaybackHandle handle;
+        volatile boolean discarded = false;
+
+        Synthesis(CompletableFuture<HttpResponse<InputStream>> exchange) {
+            this.exchange = exchange;
+        }
+
+        Synthesis(CompletableFuture<HttpResponse<InputStream>> exchange, CompletableFuture<HttpResponse<InputStream>> response) {
+            this.exchange = exchange;
+            this.response = response;
+        }
+
+        /**
+         * Lets the handle abort the exchange, including one started later by the /synthesize fallback.
+         */
+        void bind(PlaybackHandle handle) {
+            this.handle = handle;
+            handle.setPendingRequest(exchange);
+        }
+
+        CompletableFuture<HttpResponse<InputStream>> replaceExchange(CompletableFuture<HttpResponse<InputStream>> next) {
+            exchange = next;
+            PlaybackHandle h = handle;
+            if (h != null) h.setPendingRequest(next);
+            return next;
+        }
+
+        /**
+         * Aborts the exchange if it is still running, and closes the response body if one arrives
+         * (or already has), so its connection is released.
+         */
+        void discard() {
+            discarded = true;
+            CompletableFuture<HttpResponse<InputStream>> ex = exchange;
+            ex.cancel(true);
+            ex.whenComplete((r, e) -> {
+                if (r != null) closeQuietly(r.body());
+            });
+        }
+    }
+
+    private static CompletableFuture<HttpResponse<InputStream>> postSynthesis(String path, String jsonPayload) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(TTS_API_URL + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonPayload))
+                .build();
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (Exception ignored) {
+        }
+    }
 }
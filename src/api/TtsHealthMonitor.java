@@ -0,0 +1,205 @@
+package api;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import core.AppState;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes the TTS sidecar in the background and keeps AppState.isTtsApiAvailable current.
+ * While the sidecar is down, probes back off from 2 s up to a minute; once it answers,
+ * it is re-checked every 15 s. The last voice list is kept in data/cache/tts_voices.json
+ * so the settings window can show voices at startup without waiting for the network.
+ */
+public class TtsHealthMonitor {
+    private static final Path VOICE_CACHE = Path.of("data", "cache", "tts_voices.json");
+    private static final long INITIAL_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 60000;
+    private static final long HEALTHY_INTERVAL_MS = 15000;
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(3);
+
+    private static final Gson gson = new Gson();
+    private static final List<Runnable> listeners = new ArrayList<>();
+
+    private static volatile List<String> voices = List.of();
+    private static volatile boolean probedOnce = false;
+    private static ScheduledExecutorService scheduler;
+    private static ScheduledFuture<?> nextProbe;
+    private static long backoffMs = INITIAL_BACKOFF_MS;
+
+    /**
+     * Loads the cached voice list and starts probing. Returns immediately.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) return;
+        voices = loadCachedVoices();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tts-health");
+            t.setDaemon(true);
+            return t;
+        });
+        schedule(0);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Last known voice list: from the sidecar once it has answered, otherwise from the cache file.
+     */
+    public static List<String> getVoices() {
+        return voices;
+    }
+
+    /**
+     * True once at least one probe has completed, so "unavailable" means the sidecar really did not answer.
+     */
+    public static boolean hasProbed() {
+        return probedOnce;
+    }
+
+    /**
+     * Probes right away on the calling thread and returns the resulting availability.
+     */
+    public static boolean probeNow() {
+        probe();
+        return AppState.isTtsApiAvailable;
+    }
+
+    /**
+     * Called when a synthesis request fails; marks TTS unavailable and re-probes soon.
+     */
+    public static void reportFailure() {
+        if (AppState.isTtsApiAvailable) {
+            System.out.println("TTS API request failed; re-checking availability");
+            setAvailable(false, voices);
+        }
+        synchronized (TtsHealthMonitor.class) {
+            backoffMs = INITIAL_BACKOFF_MS;
+            schedule(INITIAL_BACKOFF_MS);
+        }
+    }
+
+    // --- Listener support for UI updates ---
+    public static void addStatusListener(Runnable listener) {
+        if (listener == null) return;
+        synchronized (listeners) { listeners.add(listener); }
+    }
+
+    public static void removeStatusListener(Runnable listener) {
+        if (listener == null) return;
+        synchronized (listeners) { listeners.remove(listener); }
+    }
+
+    // === Internal helpers ===
+
+    private static void probe() {
+        List<String> found = null;
+        try {
+            found = TtsApiClient.fetchCharacters(PROBE_TIMEOUT);
+        } catch (Exception ignored) {
+            // Sidecar not running; backoff below
+        }
+        boolean up = found != null && !found.isEmpty();
+        boolean first = !probedOnce;
+        probedOnce = true;
+
+        if (up && !found.equals(voices)) saveCachedVoices(found);
+        boolean changed = setAvailable(up, up ? List.copyOf(found) : voices);
+        if (first && !changed) notifyStatusChanged();
+
+        synchronized (TtsHealthMonitor.class) {
+            if (up) {
+                backoffMs = INITIAL_BACKOFF_MS;
+                schedule(HEALTHY_INTERVAL_MS);
+            } else {
+                schedule(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * Applies a new state and notifies listeners if availability or the voice list changed.
+     */
+    private static boolean setAvailable(boolean up, List<String> newVoices) {
+        boolean availabilityChanged = AppState.isTtsApiAvailable != up;
+        boolean voicesChanged = !newVoices.equals(voices);
+        AppState.isTtsApiAvailable = up;
+        voices = newVoices;
+        if (availabilityChanged) {
+            System.out.println(up ? "TTS API is available (" + newVoices.size() + " voices)" : "TTS API is not available");
+        }
+        if (up && AppState.selectedTtsCharacterVoice == null && !newVoices.isEmpty()) {
+            AppState.selectedTtsCharacterVoice = newVoices.get(0);
+            AppState.saveCurrentSettings();
+        }
+        if (availabilityChanged || voicesChanged) {
+            notifyStatusChanged();
+            return true;
+        }
+        return false;
+    }
+
+    private static void schedule(long delayMs) {
+        if (scheduler == null) return;
+        if (nextProbe != null) nextProbe.cancel(false);
+        nextProbe = scheduler.schedule(TtsHealthMonitor::probe, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<String> loadCachedVoices() {
+        try {
+            if (Files.exists(VOICE_CACHE)) {
+                String json = Files.readString(VOICE_CACHE, StandardCharsets.UTF_8);
+                List<String> cached = gson.fromJson(json, new TypeToken<List<String>>() {}.getType());
+                if (cached != null) return List.copyOf(cached);
+            }
+        } catch (Exception e) {
+            System.err.println("Could not read cached TTS voices: " + e.getMessage());
+        }
+        return List.of();
+    }
+
+    private static void saveCachedVoices(List<String> list) {
+        try {
+            Files.createDirectories(VOICE_CACHE.getParent());
+            Path tmp = Files.createTempFile(VOICE_CACHE.getParent(), "tts_voices", ".tmp");
+            Files.writeString(tmp, gson.toJson(list), StandardCharsets.UTF_8);
+            Files.move(tmp, VOICE_CACHE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not cache TTS voices: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the status listeners on the EDT, e.g. when the supervisor stops bringing the sidecar up.
+     */
+    static void notifyStatusChanged() {
+        List<Runnable> copy;
+        synchronized (listeners) { copy = new ArrayList<>(listeners); }
+        if (copy.isEmpty()) return;
+        Runnable dispatcher = () -> {
+            for (Runnable r : copy) {
+                try { r.run(); } catch (Throwable ignored) {}
+            }
+        };
+        if (SwingUtilities.isEventDispatchThread()) dispatcher.run();
+        else SwingUtilities.invokeLater(dispatcher);
+    }
+}
@@ -0,0 +1,186 @@
+package api;
+
+import config.ConfigurationManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Launches start_api_coqui.py as a child process and keeps it running.
+ * - If something already answers on the TTS port, that server is used and nothing is launched.
+ * - Readiness is detected by polling /characters; the health monitor is nudged as soon as it answers.
+ * - Sidecar output is forwarded to the app log with a "[tts-sidecar]" prefix.
+ * - A crashed sidecar is restarted with backoff (2 s doubling to 60 s); after five starts in a row that never
+ *   became ready it gives up.
+ */
+public class TtsSidecarSupervisor {
+    private static final long INITIAL_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 60000;
+    // A run this long counts as healthy, so the next crash starts over with a short backoff
+    private static final long STABLE_RUN_MS = 5 * 60 * 1000;
+    private static final int MAX_CONSECUTIVE_FAILURES = 5;
+    // First start may download the model, which takes a while
+    private static final long READY_TIMEOUT_MS = 10 * 60 * 1000;
+    private static final long READY_POLL_MS = 1000;
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(2);
+
+    private static volatile Process process = null;
+    private static volatile boolean stopping = false;
+    private static volatile boolean managing = false;
+    private static Thread supervisor = null;
+
+    /**
+     * Starts supervising on a background thread. Returns immediately. Does nothing while already
+     * supervising; after the supervisor has given up, tries again.
+     */
+    public static synchronized void start() {
+        if (supervisor != null && supervisor.isAlive()) return;
+        if (!ConfigurationManager.isTtsSidecarManaged()) {
+            System.out.println("TTS sidecar management disabled in system.json");
+            return;
+        }
+        stopping = false;
+        managing = true;
+        supervisor = new Thread(TtsSidecarSupervisor::supervise, "tts-sidecar-supervisor");
+        supervisor.setDaemon(true);
+        supervisor.start();
+    }
+
+    /**
+     * Stops the sidecar (and the interpreter it runs in) if we launched it.
+     */
+    public static void stop() {
+        stopping = true;
+        managing = false;
+        Thread t;
+        synchronized (TtsSidecarSupervisor.class) {
+            t = supervisor;
+            supervisor = null;
+        }
+        if (t != null) t.interrupt();
+        Process p = process;
+        if (p == null) return;
+        System.out.println("Stopping TTS sidecar...");
+        // The Windows "py" launcher runs python as a child; stop the whole tree
+        p.descendants().forEach(ProcessHandle::destroy);
+        p.destroy();
+        try {
+            if (!p.waitFor(5, TimeUnit.SECONDS)) {
+                p.descendants().forEach(ProcessHandle::destroyForcibly);
+                p.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        process = null;
+    }
+
+    /**
+     * True while the supervisor is responsible for bringing the sidecar up, so a failed
+     * probe during model load is expected rather than an error worth alerting about.
+     */
+    public static boolean isManaging() {
+        return managing;
+    }
+
+    private static void supervise() {
+        long backoff = INITIAL_BACKOFF_MS;
+        int failures = 0;
+        try {
+            if (isResponding()) {
+                System.out.println("TTS API already running; not launching a sidecar");
+                managing = false;
+                return;
+            }
+            while (!stopping) {
+                long started = System.currentTimeMillis();
+                boolean ready = runOnce();
+                if (stopping) return;
+
+                long ranFor = System.currentTimeMillis() - started;
+                if (ready) {
+                    // It started; only a sidecar that never becomes ready counts towards giving up
+                    failures = 0;
+                    if (ranFor >= STABLE_RUN_MS) backoff = INITIAL_BACKOFF_MS;
+                } else if (++failures >= MAX_CONSECUTIVE_FAILURES) {
+                    System.err.println("TTS sidecar failed " + failures + " times in a row; giving up. Start start_api_coqui.py manually.");
+                    managing = false;
+                    // The "TTS unavailable" alert was held back while we were managing; let it show now
+                    TtsHealthMonitor.notifyStatusChanged();
+                    return;
+                }
+                System.err.println("TTS sidecar exited; restarting in " + backoff / 1000 + " s");
+                TtsHealthMonitor.reportFailure();
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        } catch (InterruptedException e) {
+            // stop() was called
+        }
+    }
+
+    /**
+     * Launches the sidecar and blocks until it exits. Returns whether it ever became ready.
+     */
+    private static boolean runOnce() throws InterruptedException {
+        List<String> command = ConfigurationManager.getTtsSidecarCommand();
+        System.out.println("Launching TTS sidecar: " + String.join(" ", command));
+        Process p;
+        try {
+            p = new ProcessBuilder(command).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            System.err.println("Could not launch TTS sidecar: " + e.getMessage());
+            return false;
+        }
+        process = p;
+        Thread pump = new Thread(() -> pipeOutput(p), "tts-sidecar-log");
+        pump.setDaemon(true);
+        pump.start();
+
+        boolean ready = false;
+        long deadline = System.currentTimeMillis() + READY_TIMEOUT_MS;
+        while (p.isAlive() && !stopping && System.currentTimeMillis() < deadline) {
+            if (isResponding()) {
+                ready = true;
+                System.out.println("TTS sidecar ready (pid " + p.pid() + ")");
+                TtsHealthMonitor.probeNow();
+                break;
+            }
+            Thread.sleep(READY_POLL_MS);
+        }
+        if (!ready && p.isAlive() && !stopping) {
+            System.err.println("TTS sidecar did not become ready in time; restarting it");
+            p.descendants().forEach(ProcessHandle::destroyForcibly);
+            p.destroyForcibly();
+        }
+        int exit = p.waitFor();
+        process = null;
+        if (!stopping) System.err.println("TTS sidecar exited with code " + exit);
+        return ready;
+    }
+
+    private static void pipeOutput(Process p) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                System.out.println("[tts-sidecar] " + line);
+            }
+        } catch (IOException ignored) {
+            // Stream closes when the process exits
+        }
+    }
+
+    private static boolean isResponding() {
+        try {
+            List<String> voices = TtsApiClient.fetchCharacters(PROBE_TIMEOUT);
+            return voices != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
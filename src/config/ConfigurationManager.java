@@ -9,6 +9,7 @@ public class ConfigurationManager {
     private static SystemConfig systemConfig = null;
     private static UserSettings userSettings = null;
     private static PromptsConfig promptsConfig = null;
+    private static java.util.Map<String, ScheduleConfig.Entry> scheduleOverrides = java.util.Collections.emptyMap();
 
     /**
      * Initializes all configuration files.
@@ -18,6 +19,7 @@ public class ConfigurationManager {
         loadSystemConfig();
         loadUserSettings();
         loadPrompts();
+        scheduleOverrides = ScheduleConfig.load();
     }
 
     /**
@@ -52,6 +54,29 @@ public class ConfigurationManager {
 
     // === System Config Access ===
 
+    /**
+     * Whether the app should launch and supervise the TTS sidecar (default true)
+     */
+    public static boolean isTtsSidecarManaged() {
+        SystemConfig.TtsSidecarConfig sidecar = systemConfig != null ? systemConfig.getTtsSidecar() : null;
+        return sidecar == null || sidecar.isEnabled();
+    }
+
+    /**
+     * Command line used to launch the TTS sidecar: "py -3.12 start_api_coqui.py" on Windows,
+     * "python3 start_api_coqui.py" elsewhere, unless system.json overrides it.
+     */
+    public static java.util.List<String> getTtsSidecarCommand() {
+        SystemConfig.TtsSidecarConfig sidecar = systemConfig != null ? systemConfig.getTtsSidecar() : null;
+        if (sidecar != null && sidecar.getCommand() != null && !sidecar.getCommand().isEmpty()) {
+            return sidecar.getCommand();
+        }
+        boolean windows = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+        return windows
+                ? java.util.List.of("py", "-3.12", "start_api_coqui.py")
+                : java.util.List.of("python3", "start_api_coqui.py");
+    }
+
     /**
      * Gets the vision API configuration
      */
@@ -156,6 +181,20 @@ public class ConfigurationManager {
         }
     }
 
+    /**
+     * Scheduling overrides for an action from schedules.json, or null to keep its defaults
+     */
+    public static ScheduleConfig.Entry getScheduleOverride(String actionId) {
+        return scheduleOverrides.get(actionId);
+    }
+
+    /**
+     * Gets the p95 end-to-end cycle latency target used by the quality ladder
+     */
+    public static long getCycleLatencyTargetMs() {
+        return userSettings != null ? userSettings.getCycleLatencyTargetMs() : 20000;
+    }
+
     // === User Settings Updates ===
 
     public static void setSelectedTtsVoice(String voice) {
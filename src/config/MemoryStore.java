@@ -64,6 +64,15 @@ public class MemoryStore {
         }
     }
 
+    /**
+     * Applies a set of memory writes, saving userMemory.json at most once.
+     */
+    public static synchronized void apply(MemoryUpdate update) {
+        if (update == null || update.isEmpty()) return;
+        if (update.getShortTerm() != null) setShortTerm(update.getShortTerm());
+        if (update.getLongTerm() != null) setLongTerm(update.getLongTerm());
+    }
+
     private static String safeString(String s) { return s != null ? s : ""; }
 
     private static void writeFile(String longTermContent) throws IOException {
@@ -0,0 +1,32 @@
+package config;
+
+/**
+ * Memory writes applied together by {@link MemoryStore#apply(MemoryUpdate)}, with at most one
+ * write of userMemory.json. Each memory is overwritten on write, so the last write wins.
+ */
+public final class MemoryUpdate {
+    private String shortTerm; // null: unchanged
+    private String longTerm;  // null: unchanged
+
+    public MemoryUpdate writeShortTerm(String content) {
+        this.shortTerm = content != null ? content : "";
+        return this;
+    }
+
+    public MemoryUpdate writeLongTerm(String content) {
+        this.longTerm = content != null ? content : "";
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return shortTerm == null && longTerm == null;
+    }
+
+    String getShortTerm() {
+        return shortTerm;
+    }
+
+    String getLongTerm() {
+        return longTerm;
+    }
+}
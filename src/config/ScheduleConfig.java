@@ -0,0 +1,55 @@
+package config;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileReader;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-action scheduling overrides from data/system/schedules.json, keyed by action ID.
+ * Any field left out keeps the action's built-in default.
+ */
+public class ScheduleConfig {
+    private static final String SCHEDULES_FILE = "data/system/schedules.json";
+
+    public static class Entry {
+        @SerializedName("period_ticks")
+        private Integer periodTicks;
+
+        @SerializedName("jitter_ticks")
+        private Integer jitterTicks;
+
+        @SerializedName("max_cost_ms")
+        private Long maxCostMs;
+
+        @SerializedName("preconditions")
+        private List<String> preconditions;
+
+        // Default constructor for Gson
+        public Entry() {}
+
+        public Integer getPeriodTicks() { return periodTicks; }
+        public Integer getJitterTicks() { return jitterTicks; }
+        public Long getMaxCostMs() { return maxCostMs; }
+        public List<String> getPreconditions() { return preconditions; }
+    }
+
+    public static Map<String, Entry> load() {
+        File file = new File(SCHEDULES_FILE);
+        if (!file.exists()) return Collections.emptyMap();
+        try (FileReader reader = new FileReader(file)) {
+            Type type = new TypeToken<Map<String, Entry>>() {}.getType();
+            Map<String, Entry> entries = new Gson().fromJson(reader, type);
+            return entries != null ? entries : Collections.emptyMap();
+        } catch (Exception e) {
+            System.err.println("Could not load schedules.json: " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+}
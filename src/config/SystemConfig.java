@@ -13,6 +13,7 @@ public class SystemConfig {
     private ApiConfig vision;
     private ApiConfig multimodal;
     private PromptsConfig prompts;
+    private TtsSidecarConfig tts_sidecar;
 
     // Default constructor for Gson
     public SystemConfig() {}
@@ -33,6 +34,10 @@ public class SystemConfig {
         return prompts;
     }
 
+    public TtsSidecarConfig getTtsSidecar() {
+        return tts_sidecar;
+    }
+
     /**
      * Loads system configuration from the system.json file
      */
@@ -78,6 +83,25 @@ public class SystemConfig {
         }
     }
 
+    /**
+     * Controls whether the app launches the Python TTS sidecar itself, and with which command
+     */
+    public static class TtsSidecarConfig {
+        private Boolean enabled;
+        private java.util.List<String> command;
+
+        // Default constructor for Gson
+        public TtsSidecarConfig() {}
+
+        public boolean isEnabled() {
+            return enabled == null || enabled;
+        }
+
+        public java.util.List<String> getCommand() {
+            return command;
+        }
+    }
+
     /**
      * Represents prompts configuration
      */
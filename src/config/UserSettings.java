@@ -21,6 +21,7 @@ public class UserSettings {
     private boolean useApiMultimodal = true;
     private boolean useTTS = true;
     private String chatFrequency = "medium"; // frequent|medium|scarse
+    private long cycleLatencyTargetMs = 20000; // p95 target for the quality ladder
 
     // Default constructor
     public UserSettings() {}
@@ -143,4 +144,12 @@ public class UserSettings {
     public void setChatFrequency(String chatFrequency) {
         this.chatFrequency = chatFrequency;
     }
+
+    public long getCycleLatencyTargetMs() {
+        return cycleLatencyTargetMs;
+    }
+
+    public void setCycleLatencyTargetMs(long cycleLatencyTargetMs) {
+        this.cycleLatencyTargetMs = cycleLatencyTargetMs;
+    }
 }
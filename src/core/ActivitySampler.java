@@ -0,0 +1,140 @@
+package core;
+
+import actions.FrameDiff;
+
+import java.awt.MouseInfo;
+import java.awt.Point;
+import java.awt.PointerInfo;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells an active user from an idle or absent one, so the thinking loop can slow down overnight.
+ * Signals of activity:
+ * - the mouse pointer moved (polled once a second; cheap, no native hooks)
+ * - the captured screen changed between two thinking cycles (typing, video, a new window)
+ * After IDLE_AFTER_MS without either, the sampler reports idle and tick intervals double each
+ * cycle up to MAX_IDLE_INTERVAL_MS. The first pointer movement wakes the assistant right away.
+ */
+public class ActivitySampler {
+    private static final long POLL_INTERVAL_MS = 1000;
+    private static final long IDLE_AFTER_MS = 3 * 60 * 1000;
+    private static final long MAX_IDLE_INTERVAL_MS = 10 * 60 * 1000;
+    // Fraction of sampled pixels that must change between frames to count as activity
+    private static final double FRAME_ACTIVITY_FRACTION = 0.02;
+
+    private static volatile long lastActivityAt = System.currentTimeMillis();
+    private static volatile boolean idle = false;
+    private static long idleInterval = 0;
+    private static Point lastPointer = null;
+    private static BufferedImage lastFrame = null;
+    private static Runnable onWake = null;
+    private static ScheduledExecutorService poller = null;
+
+    /**
+     * Starts polling the pointer. {@code wake} runs (on the sampler thread) when activity resumes after idle.
+     */
+    public static synchronized void start(Runnable wake) {
+        onWake = wake;
+        lastActivityAt = System.currentTimeMillis();
+        idle = false;
+        idleInterval = 0;
+        lastFrame = null;
+        if (poller != null) return;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "activity-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(ActivitySampler::pollPointer, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+        onWake = null;
+        lastFrame = null;
+    }
+
+    public static boolean isIdle() {
+        return idle;
+    }
+
+    /**
+     * Feeds the frame captured by a thinking cycle; a changed screen counts as activity.
+     */
+    public static void reportFrame(BufferedImage frame) {
+        if (frame == null) return;
+        boolean changed;
+        synchronized (ActivitySampler.class) {
+            changed = lastFrame != null && FrameDiff.changedFraction(lastFrame, frame) >= FRAME_ACTIVITY_FRACTION;
+            lastFrame = frame;
+        }
+        if (changed) markActivity("screen changed");
+        else checkIdle();
+    }
+
+    /**
+     * Delay until the next thinking cycle: the base interval while active, doubling from
+     * twice the base on every idle cycle up to MAX_IDLE_INTERVAL_MS.
+     */
+    public static synchronized long nextIntervalMs(long baseMs) {
+        checkIdle();
+        if (!idle) {
+            idleInterval = 0;
+            return baseMs;
+        }
+        idleInterval = idleInterval == 0 ? baseMs * 2 : Math.min(idleInterval * 2, MAX_IDLE_INTERVAL_MS);
+        return Math.max(baseMs, idleInterval);
+    }
+
+    private static void pollPointer() {
+        Point location;
+        try {
+            PointerInfo info = MouseInfo.getPointerInfo();
+            if (info == null) return; // e.g. pointer on a screen we cannot see
+            location = info.getLocation();
+        } catch (Exception e) {
+            return; // headless
+        }
+        boolean moved;
+        synchronized (ActivitySampler.class) {
+            moved = lastPointer != null && !lastPointer.equals(location);
+            lastPointer = location;
+        }
+        if (moved) markActivity("pointer moved");
+        else checkIdle();
+    }
+
+    private static void markActivity(String signal) {
+        lastActivityAt = System.currentTimeMillis();
+        Runnable wake;
+        synchronized (ActivitySampler.class) {
+            if (!idle) return;
+            idle = false;
+            idleInterval = 0;
+            wake = onWake;
+        }
+        System.out.println("[Activity] User active again (" + signal + "); resuming normal cycles");
+        if (wake != null) {
+            try {
+                wake.run();
+            } catch (Exception e) {
+                System.err.println("Error waking assistant: " + e.getMessage());
+            }
+        }
+    }
+
+    private static synchronized void checkIdle() {
+        if (idle) return;
+        long quietFor = System.currentTimeMillis() - lastActivityAt;
+        if (quietFor >= IDLE_AFTER_MS) {
+            idle = true;
+            System.out.println("[Activity] No activity for " + quietFor / 1000 + " s; backing off");
+        }
+    }
+}
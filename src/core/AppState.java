@@ -14,12 +14,12 @@ public class AppState {
     // --- Essential Application State ---
     public static volatile boolean isRunning = false;
     public static volatile boolean isTtsApiAvailable = false;
-    // Indicates when an action (e.g., screen analysis) is performing background work
-    public static volatile boolean isActionProcessing = false;
     // Indicates when TTS playback is ongoing
     public static volatile boolean isSpeaking = false;
     // Global tick counter for thinking cycles
     public static volatile long tickCounter = 0L;
+    // Time between thinking cycles; cycle deadlines are derived from it
+    public static volatile long tickIntervalMs = 10000L;
 
     // --- UI Configuration ---
     public static final String FALLBACK_IMAGE_URL = "";
@@ -2,8 +2,11 @@ package core;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import api.RequestScope;
+import api.SpeechService;
 import actions.ActionManager;
 import actions.ScreenAnalysisAction;
 import actions.ThinkingEngine;
@@ -15,6 +18,12 @@ import actions.ThinkingEngine;
 public class AssistantCore {
 
     private ScheduledExecutorService scheduler;
+    // The one pending cycle; each cycle schedules the next, so idle back-off can stretch the gap
+    private ScheduledFuture<?> nextTick;
+    // Bumped whenever a new chain replaces the current one; a cycle of an older chain does not reschedule
+    private long tickGeneration = 0;
+    // A cycle is executing; its own reschedule picks up the user's return, so wake() leaves it alone
+    private boolean tickRunning = false;
     private ActionManager actionManager;
     private ThinkingEngine thinkingEngine;
 
@@ -29,10 +38,10 @@ public class AssistantCore {
         actionManager = new ActionManager();
         thinkingEngine = new ThinkingEngine(actionManager);
 
-        // Register all available actions
+        // Register all available actions. Contributor output is merged into the prompt in this order.
         actionManager.registerAction(new ScreenAnalysisAction());
-        actionManager.registerAction(new actions.MemoryTaskAction());
         actionManager.registerAction(new actions.LevelsTaskAction());
+        actionManager.registerAction(new actions.MemoryTaskAction());
 
         // Future actions can be registered here:
         // actionManager.registerAction(new NoteTakingAction());
@@ -46,32 +55,83 @@ public class AssistantCore {
     public void startProcessing() {
         if (AppState.isRunning) return;
 
-        scheduler = Executors.newScheduledThreadPool(1);
-
-        // Single scheduled task that triggers the thinking engine
+        // Single self-rescheduling task that triggers the thinking engine
         // The thinking engine will decide what actions to execute
-        scheduler.scheduleAtFixedRate(
-            thinkingEngine::think,
-            0,
-            10, // Think every 10 seconds
-            TimeUnit.SECONDS
-        );
-
         AppState.isRunning = true;
+        synchronized (this) {
+            scheduler = Executors.newScheduledThreadPool(1);
+            tickGeneration++;
+            scheduleTick(scheduler, 0, tickGeneration);
+        }
+        ActivitySampler.start(this::wake);
+
         System.out.println("AI Assistant thinking engine started.");
     }
 
     public void stopProcessing() {
         if (!AppState.isRunning) return;
 
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdownNow();
+        ActivitySampler.stop();
+        synchronized (this) {
+            if (scheduler != null && !scheduler.isShutdown()) {
+                scheduler.shutdownNow();
+            }
+            nextTick = null;
         }
+        // Frames prepared before stopping should not produce comments afterwards, and requests
+        // and speech already under way are aborted rather than left running against the backends
+        thinkingEngine.clearPendingWork();
+        RequestScope.cancelAll("assistant stopped");
+        SpeechService.cancelAll();
 
         AppState.isRunning = false;
         System.out.println("AI Assistant thinking engine stopped.");
     }
 
+    /**
+     * Runs one thinking cycle, then schedules the next: every tick interval (10 s) while the user
+     * is active, exponentially less often while idle.
+     */
+    private void tick(ScheduledExecutorService owner, long generation) {
+        synchronized (this) {
+            if (generation != tickGeneration) return;
+            tickRunning = true;
+        }
+        try {
+            thinkingEngine.think();
+        } finally {
+            synchronized (this) {
+                tickRunning = false;
+                if (AppState.isRunning && generation == tickGeneration) {
+                    long delay = ActivitySampler.nextIntervalMs(AppState.tickIntervalMs);
+                    if (delay != AppState.tickIntervalMs) {
+                        System.out.println("[Activity] Idle; next cycle in " + delay / 1000 + " s");
+                    }
+                    scheduleTick(owner, delay, generation);
+                }
+            }
+        }
+    }
+
+    private synchronized void scheduleTick(ScheduledExecutorService owner, long delayMs, long generation) {
+        // A cycle still finishing after stop/start must not start a second chain on the new scheduler
+        if (owner != scheduler || owner.isShutdown()) return;
+        nextTick = owner.schedule(() -> tick(owner, generation), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Called when the user becomes active after idling: runs the next cycle now instead of
+     * waiting out the idle interval. A cycle already running reschedules itself normally, since
+     * its activity check already sees the user back; a future cancelled mid-run would still report
+     * success, so the running flag decides, not cancel().
+     */
+    private synchronized void wake() {
+        if (!AppState.isRunning || nextTick == null || tickRunning) return;
+        nextTick.cancel(false);
+        tickGeneration++;
+        scheduleTick(scheduler, 0, tickGeneration);
+    }
+
     /**
      * Gets the action manager for external access (e.g., for debugging or manual action execution).
      */
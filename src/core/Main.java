@@ -3,6 +3,8 @@ package core;
 import javax.swing.*;
 import java.util.List;
 import api.TtsApiClient;
+import api.TtsHealthMonitor;
+import api.TtsSidecarSupervisor;
 
 /**
  * The main entry point for the AI Assistant application.
@@ -18,33 +20,42 @@ public class Main {
         // Initialize the application state and all managers
         AppState.initialize();
 
-        System.out.println("Fetching available TTS characters...");
-        List<String> voices = TtsApiClient.getAvailableCharacters();
+        // Launch the TTS sidecar now so its model loads while the rest of the app and Swing start up.
+        // Enabling TTS later in the settings starts it then; either way it is stopped on exit.
+        if (AppState.useTTS()) {
+            TtsSidecarSupervisor.start();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(TtsSidecarSupervisor::stop, "tts-sidecar-shutdown"));
 
-        if (voices == null || voices.isEmpty()) {
-            System.out.println("TTS API not available at startup");
-            AppState.isTtsApiAvailable = false;
-            // Create empty voices array for SettingsWindow
-            voices = new java.util.ArrayList<>();
+        // Open and warm the audio output lines in the background so the first utterance starts promptly
+        if (AppState.useTTS()) {
+            Thread warmup = new Thread(api.AudioOutput::warmUp, "audio-warmup");
+            warmup.setDaemon(true);
+            warmup.start();
+            // Hand the pooled lines back to the mixer on exit
+            Runtime.getRuntime().addShutdownHook(new Thread(api.AudioOutput::closeAll, "audio-shutdown"));
+        }
 
-            // Only alert if TTS is enabled
-            if (AppState.useTTS()) {
-                SwingUtilities.invokeLater(() -> {
-                    JOptionPane.showMessageDialog(null,
-                        "Could not connect to the TTS API Server.\nPlease ensure start_api_coqui.py is running.",
-                        "Connection Error",
-                        JOptionPane.ERROR_MESSAGE);
-                });
-            }
-        } else {
-            AppState.isTtsApiAvailable = true;
-            // Set default voice if none was loaded from settings
-            if (AppState.selectedTtsCharacterVoice == null) {
-                AppState.selectedTtsCharacterVoice = voices.getFirst();
-                AppState.saveCurrentSettings();
+        // Start from the cached voice list; the health monitor probes the TTS API in the background
+        // and updates availability and the voice selector when it answers
+        TtsHealthMonitor.addStatusListener(new Runnable() {
+            private boolean alerted = false;
+
+            @Override
+            public void run() {
+                // Alert once if TTS is enabled but the server did not answer the first probe.
+                // While the supervisor is still bringing the sidecar up, that is expected.
+                if (alerted || AppState.isTtsApiAvailable || !AppState.useTTS() || TtsSidecarSupervisor.isManaging()) return;
+                alerted = true;
+                JOptionPane.showMessageDialog(null,
+                    "Could not connect to the TTS API Server.\nPlease ensure start_api_coqui.py is running.\nSpeech will resume automatically once it is reachable.",
+                    "Connection Error",
+                    JOptionPane.ERROR_MESSAGE);
             }
-            System.out.println("TTS voices found. Selected voice: " + AppState.selectedTtsCharacterVoice);
-        }
+        });
+        TtsHealthMonitor.start();
+        List<String> voices = TtsHealthMonitor.getVoices();
+        System.out.println("Cached TTS voices: " + voices.size() + ". Selected voice: " + AppState.selectedTtsCharacterVoice);
 
         assistantCore = new AssistantCore();
 
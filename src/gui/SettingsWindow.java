@@ -4,9 +4,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
 import javax.imageio.ImageIO;
-import api.TtsApiClient;
+import api.TtsHealthMonitor;
 import core.AppState;
 import core.Main;
 import gui.settings.*;
@@ -398,38 +397,38 @@ public class SettingsWindow extends JFrame {
                     Main.assistantCore.startProcessing();
                     startStopButton.setText("Stop Assistant");
                 } else if (!AppState.isTtsApiAvailable) {
-                    // TTS wasn't available at startup, check again now
-                    if (TtsApiClient.isApiAvailable()) {
-                        // TTS is now available, update everything
-                        AppState.isTtsApiAvailable = true;
-                        List<String> voices = TtsApiClient.getAvailableCharacters();
-                        if (voices != null && !voices.isEmpty()) {
-                            // Update voice selection if needed
-                            if (AppState.selectedTtsCharacterVoice == null) {
-                                AppState.selectedTtsCharacterVoice = voices.getFirst();
-                                AppState.saveCurrentSettings();
+                    // The health monitor has not seen the TTS API yet; probe once more, off the EDT
+                    startStopButton.setEnabled(false);
+                    new SwingWorker<Boolean, Void>() {
+                        @Override
+                        protected Boolean doInBackground() {
+                            return TtsHealthMonitor.probeNow();
+                        }
+
+                        @Override
+                        protected void done() {
+                            startStopButton.setEnabled(true);
+                            boolean available;
+                            try {
+                                available = get();
+                            } catch (Exception ex) {
+                                available = false;
+                            }
+                            if (available) {
+                                // Voice selector is refreshed by the monitor's status listeners
+                                Main.assistantCore.startProcessing();
+                                startStopButton.setText("Stop Assistant");
+                            } else {
+                                // TTS is still not available - simple message
+                                JOptionPane.showMessageDialog(SettingsWindow.this,
+                                    "TTS API Server is still not running.\nPlease start the TTS API server (start_api_coqui.py) and try again.",
+                                    "TTS API Not Available",
+                                    JOptionPane.ERROR_MESSAGE);
                             }
-                            // Update the voice selector in the UI
-                            updateVoiceSelector(voices);
-                            // Proceed with starting the assistant
-                            Main.assistantCore.startProcessing();
-                            startStopButton.setText("Stop Assistant");
-                        } else {
-                            // Still no voices available
-                            JOptionPane.showMessageDialog(this,
-                                "TTS API is responding but no voices are available.",
-                                "No Voices Available",
-                                JOptionPane.ERROR_MESSAGE);
                         }
-                    } else {
-                        // TTS is still not available - simple message
-                        JOptionPane.showMessageDialog(this,
-                            "TTS API Server is still not running.\nPlease start the TTS API server (start_api_coqui.py) and try again.",
-                            "TTS API Not Available",
-                            JOptionPane.ERROR_MESSAGE);
-                    }
+                    }.execute();
                 } else {
-                    // TTS was available at startup, proceed normally
+                    // TTS API is available, proceed normally
                     Main.assistantCore.startProcessing();
                     startStopButton.setText("Stop Assistant");
                 }
@@ -466,34 +465,4 @@ public class SettingsWindow extends JFrame {
         }
         return null;
     }
-
-    private void updateVoiceSelector(List<String> voices) {
-        // Find the voice selector and update it with new voices
-        Component voiceSelector = findVoiceSelector(this.getContentPane());
-        if (voiceSelector instanceof JComboBox) {
-            @SuppressWarnings("unchecked")
-            JComboBox<String> comboBox = (JComboBox<String>) voiceSelector;
-            comboBox.removeAllItems();
-            for (String voice : voices) {
-                comboBox.addItem(voice);
-            }
-            // Set the selected voice
-            if (AppState.selectedTtsCharacterVoice != null) {
-                comboBox.setSelectedItem(AppState.selectedTtsCharacterVoice);
-            }
-        }
-    }
-
-    private Component findVoiceSelector(Container container) {
-        for (Component component : container.getComponents()) {
-            if (component instanceof JComboBox) {
-                // This is a simple check - in a more complex app you'd want to be more specific
-                return component;
-            } else if (component instanceof Container) {
-                Component found = findVoiceSelector((Container) component);
-                if (found != null) return found;
-            }
-        }
-        return null;
-    }
 }
@@ -24,6 +24,8 @@ public class TtsTogglePanel extends JPanel {
             if (e.getStateChange() == ItemEvent.SELECTED || e.getStateChange() == ItemEvent.DESELECTED) {
                 boolean enabled = enableTts.isSelected();
                 AppState.setUseTTS(enabled);
+                // The sidecar is only launched at startup when TTS was already on
+                if (enabled) api.TtsSidecarSupervisor.start();
                 // Try to update any voice selector visible in the window
                 SwingUtilities.invokeLater(() -> {
                     Window w = SwingUtilities.getWindowAncestor(TtsTogglePanel.this);
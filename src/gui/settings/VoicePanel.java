@@ -25,8 +25,32 @@ public class VoicePanel extends JPanel {
                 AppState.selectedTtsCharacterVoice = (String) e.getItem();
                 System.out.println("Voice changed to: " + AppState.selectedTtsCharacterVoice);
                 AppState.saveCurrentSettings();
+                // Stock phrases are cached per voice
+                personality.PersonalityManager.prefetchWarmupPhrases();
             }
         });
+
+        // Refresh when the TTS health monitor learns a new voice list
+        api.TtsHealthMonitor.addStatusListener(this::refreshVoices);
+    }
+
+    private void refreshVoices() {
+        java.util.List<String> voices = api.TtsHealthMonitor.getVoices();
+        if (voices.isEmpty()) return;
+        String selected = AppState.selectedTtsCharacterVoice;
+        boolean same = voiceSelector.getItemCount() == voices.size();
+        for (int i = 0; same && i < voices.size(); i++) {
+            same = voices.get(i).equals(voiceSelector.getItemAt(i));
+        }
+        if (same) return;
+        // Rebuild the model directly so no selection events fire while items change
+        DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>(voices.toArray(new String[0]));
+        if (selected != null && voices.contains(selected)) model.setSelectedItem(selected);
+        voiceSelector.setModel(model);
+        if (selected == null || !voices.contains(selected)) {
+            AppState.selectedTtsCharacterVoice = (String) model.getSelectedItem();
+            AppState.saveCurrentSettings();
+        }
     }
 
     public JComboBox<String> getVoiceSelector() {
@@ -37,6 +37,8 @@ public class LevelManager {
     private static List<String> attributes = Collections.emptyList();
     private static UserLevels userLevels = new UserLevels();
     private static final List<Runnable> listeners = new ArrayList<>();
+    // Bumped on every change, so prompt builders can tell whether the levels data moved
+    private static volatile long version = 0;
 
     public static void initialize() {
         attributes = loadAttributes();
@@ -46,6 +48,10 @@ public class LevelManager {
         save();
     }
 
+    public static long getVersion() {
+        return version;
+    }
+
     public static List<String> getAttributes() {
         return attributes;
     }
@@ -98,38 +104,51 @@ public class LevelManager {
     // --- Update operations ---
 
     /** Adds a new skill if not present and persists to disk. */
-    public static synchronized void addSkill(String skillName, String attributeAssociated) {
-        if (skillName == null || skillName.isBlank()) return;
-        Map<String, SkillInfo> skills = userLevels.getAvailableSkills();
-        if (!skills.containsKey(skillName)) {
-            // Default attribute casing: store as provided; caller should pass canonical names
-            String attr = attributeAssociated != null ? attributeAssociated : inferDefaultAttribute();
-            skills.put(skillName, new SkillInfo(attr, 0));
-            save();
-            System.out.println("[Levels] Added new skill: " + skillName + (attr != null ? " ("+attr+")" : ""));
-        }
+    public static void addSkill(String skillName, String attributeAssociated) {
+        apply(new LevelUpdate().addSkill(skillName, attributeAssociated));
     }
 
     /**
-     * Adds experience to a skill. Skill XP is not stored yet (out of current scope),
-     * so we ensure the skill exists and log the intent.
+     * Adds experience to a skill, creating the skill with the default attribute if needed.
      */
-    public static synchronized void addExpOnSkill(String skillName, int amount) {
-        if (skillName == null || skillName.isBlank()) return;
-        if (amount <= 0) amount = 1;
+    public static void addExpOnSkill(String skillName, int amount) {
+        apply(new LevelUpdate().addExpOnSkill(skillName, amount));
+    }
+
+    /**
+     * Applies a set of changes with a single attribute recompute and a single save.
+     * New skills are added before XP is granted, so a skill added and used in the same update keeps its attribute.
+     */
+    public static synchronized void apply(LevelUpdate update) {
+        if (update == null || update.isEmpty()) return;
         Map<String, SkillInfo> skills = userLevels.getAvailableSkills();
-        SkillInfo info = skills.get(skillName);
-        if (info == null) {
-            // Create skill with default attribute if not exists
-            String attr = inferDefaultAttribute();
-            info = new SkillInfo(attr, 0);
-            skills.put(skillName, info);
+        boolean changed = false;
+        for (Map.Entry<String, String> e : update.getNewSkills().entrySet()) {
+            String skillName = e.getKey();
+            if (skills.containsKey(skillName)) continue;
+            // Default attribute casing: store as provided; caller should pass canonical names
+            String attr = e.getValue() != null ? e.getValue() : inferDefaultAttribute();
+            skills.put(skillName, new SkillInfo(attr, 0));
+            changed = true;
+            System.out.println("[Levels] Added new skill: " + skillName + (attr != null ? " ("+attr+")" : ""));
+        }
+        for (Map.Entry<String, Integer> e : update.getExperience().entrySet()) {
+            String skillName = e.getKey();
+            int amount = e.getValue();
+            SkillInfo info = skills.get(skillName);
+            if (info == null) {
+                // Create skill with default attribute if not exists
+                info = new SkillInfo(inferDefaultAttribute(), 0);
+                skills.put(skillName, info);
+            }
+            info.setExperience(Math.max(0, info.getExperience() + amount));
+            changed = true;
+            System.out.println("[Levels] +" + amount + " XP -> skill '" + skillName + "' (total=" + info.getExperience() + ")");
         }
-        info.setExperience(Math.max(0, info.getExperience() + amount));
+        if (!changed) return;
         // Update attribute XP level based on all associated skills (computed each save)
-        recomputeAttributesFromSkills();
+        if (!update.getExperience().isEmpty()) recomputeAttributesFromSkills();
         save();
-        System.out.println("[Levels] +" + amount + " XP -> skill '" + skillName + "' (total=" + info.getExperience() + ")");
     }
 
     // --- Internal helpers ---
@@ -391,6 +410,7 @@ public class LevelManager {
     }
 
     private static void notifyLevelsChanged() {
+        version++;
         java.util.List<Runnable> copy;
         synchronized (listeners) { copy = new ArrayList<>(listeners); }
         if (copy.isEmpty()) return;
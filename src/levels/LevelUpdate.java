@@ -0,0 +1,42 @@
+package levels;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A set of levels changes applied together by {@link LevelManager#apply(LevelUpdate)}, with one
+ * attribute recompute and one save. Repeated commands are merged as they are added:
+ * - XP grants to the same skill add up (five +1 grants become one +5)
+ * - a skill added twice keeps the attribute it was first added with
+ */
+public final class LevelUpdate {
+    private final Map<String, String> newSkills = new LinkedHashMap<>(); // skill -> attribute (nullable)
+    private final Map<String, Integer> experience = new LinkedHashMap<>(); // skill -> XP to add
+
+    /** Adds the skill unless it already exists. */
+    public LevelUpdate addSkill(String skillName, String attributeAssociated) {
+        if (skillName == null || skillName.isBlank()) return this;
+        newSkills.putIfAbsent(skillName, attributeAssociated);
+        return this;
+    }
+
+    /** Grants XP to the skill, creating it if needed; non-positive amounts count as 1. */
+    public LevelUpdate addExpOnSkill(String skillName, int amount) {
+        if (skillName == null || skillName.isBlank()) return this;
+        experience.merge(skillName, Math.max(1, amount), Integer::sum);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return newSkills.isEmpty() && experience.isEmpty();
+    }
+
+    Map<String, String> getNewSkills() {
+        return Collections.unmodifiableMap(newSkills);
+    }
+
+    Map<String, Integer> getExperience() {
+        return Collections.unmodifiableMap(experience);
+    }
+}
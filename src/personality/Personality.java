@@ -12,6 +12,7 @@ public class Personality {
     private String prompt;
     private String multimodal_prompt; // Changed to match JSON field name
     private List<String> attributes;
+    private List<String> warmup_phrases; // stock lines synthesized in the background when selected
 
     // These fields are set programmatically
     private transient String staticImagePath;
@@ -54,6 +55,14 @@ public class Personality {
         this.attributes = attributes;
     }
 
+    public List<String> getWarmupPhrases() {
+        return warmup_phrases != null ? warmup_phrases : List.of();
+    }
+
+    public void setWarmupPhrases(List<String> warmupPhrases) {
+        this.warmup_phrases = warmupPhrases;
+    }
+
     public String getStaticImagePath() {
         return staticImagePath;
     }
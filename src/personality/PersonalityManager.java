@@ -58,11 +58,18 @@ public class PersonalityManager {
      */
     public static void setSelectedPersonality(Personality personality) {
         if (personality != null) {
+            Personality previous = selectedPersonality;
             selectedPersonality = personality;
             System.out.println("Personality changed to: " + personality.getName());
+            if (previous != null && previous != personality) {
+                // Whatever the previous personality was about to say is now out of character
+                api.RequestScope.cancelAll("personality changed");
+                api.SpeechService.cancelAll();
+            }
 
             // Save to user settings
             config.ConfigurationManager.setSelectedPersonality(personality.getName());
+            prefetchWarmupPhrases();
 
             // Note: UI updates are handled by the calling code to avoid circular dependencies
             // The caller should call updatePersonalityImages() on the UI after this method
@@ -83,6 +90,7 @@ public class PersonalityManager {
 
             if (selectedPersonality != null) {
                 System.out.println("Personality set from user settings: " + selectedPersonality.getName());
+                prefetchWarmupPhrases();
                 return;
             }
         }
@@ -94,9 +102,20 @@ public class PersonalityManager {
                     .findFirst()
                     .orElse(availablePersonalities.getFirst());
             System.out.println("Default personality set to: " + selectedPersonality.getName());
+            prefetchWarmupPhrases();
         }
     }
 
+    /**
+     * Synthesizes the selected personality's warm-up phrases into the audio cache in the background,
+     * using the current voice. Call again when the voice changes, since cached audio is per voice.
+     */
+    public static void prefetchWarmupPhrases() {
+        Personality p = selectedPersonality;
+        if (p == null || p.getWarmupPhrases().isEmpty()) return;
+        api.PhrasePrefetcher.request(p.getWarmupPhrases(), core.AppState.selectedTtsCharacterVoice);
+    }
+
     // === Getters ===
 
     public static List<Personality> getAvailablePersonalities() {
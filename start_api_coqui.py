@@ -1,11 +1,13 @@
 ﻿import sys
-from flask import Flask, request, jsonify, send_file
+from flask import Flask, request, jsonify, send_file, Response, stream_with_context
 import torch
 import io
 import numpy as np
 from TTS.api import TTS
 import os
 import json
+import re
+import struct
 
 # --- Configuration ---
 def load_models_from_json(file_path):
@@ -182,6 +184,75 @@ def synthesize():
         traceback.print_exc()
         return jsonify({"error": f"Failed to generate speech: {str(e)}"}), 500
 
+# --- Raw PCM streaming ---
+# Header: b"PCMS", uint32 sample rate, uint16 channels, uint16 bits per sample (little-endian).
+# Then frames of uint32 byte length + 16-bit PCM; a zero-length frame ends the stream.
+PCM_STREAM_MAGIC = b"PCMS"
+PCM_FRAME_BYTES = 32768
+SENTENCE_SPLIT = re.compile(r'(?<=[.!?\u2026])\s+')
+
+@app.route('/synthesize_stream', methods=['POST'])
+def synthesize_stream():
+    """
+    Streaming variant of /synthesize. Accepts the same JSON payload, but instead of a complete
+    WAV it returns raw 16-bit PCM in length-prefixed frames, sentence by sentence, as soon as
+    each sentence has been synthesized.
+    """
+
+    if not request.json or 'text' not in request.json:
+        return jsonify({"error": "Missing 'text' in request body"}), 400
+
+    text = request.json['text']
+    if not text:
+        return jsonify({"error": "'text' field cannot be empty"}), 400
+
+    character = request.json.get('character', DEFAULT_MODEL)
+    speed = float(request.json.get('speed', 1.0))
+    language = request.json.get('language', 'en')
+
+    print(f"Received request to stream: '{text}' with character: '{character}', speed: {speed}")
+
+    if character not in AVAILABLE_MODELS:
+        return jsonify({"error": f"Speaker '{character}' not available. Available speakers: {list(AVAILABLE_MODELS.keys())}"}), 400
+
+    model_info = AVAILABLE_MODELS[character]
+    tts_model = get_or_load_model(model_info)
+    if not tts_model:
+        return jsonify({"error": f"Failed to load model for speaker '{character}'"}), 500
+
+    # Same speed handling as /synthesize: play at a scaled sample rate
+    sample_rate = tts_model.synthesizer.output_sample_rate
+    if speed != 1.0:
+        sample_rate = int(sample_rate * speed)
+    speaker_name = model_info.get("speaker")
+    sentences = [s for s in SENTENCE_SPLIT.split(text.strip()) if s.strip()]
+
+    def generate():
+        yield PCM_STREAM_MAGIC + struct.pack('<IHH', sample_rate, 1, 16)
+        try:
+            for sentence in sentences:
+                if speaker_name:
+                    audio_data = tts_model.tts(text=sentence, speaker=speaker_name, language=language)
+                else:
+                    audio_data = tts_model.tts(text=sentence)
+                audio_data = np.asarray(audio_data, dtype=np.float32)
+                peak = np.max(np.abs(audio_data)) if audio_data.size else 0
+                if peak > 0:
+                    audio_data = audio_data / peak
+                pcm = (np.clip(audio_data, -1.0, 1.0) * 32767).astype('<i2').tobytes()
+                for start in range(0, len(pcm), PCM_FRAME_BYTES):
+                    frame = pcm[start:start + PCM_FRAME_BYTES]
+                    yield struct.pack('<I', len(frame)) + frame
+            yield struct.pack('<I', 0)
+            print(f"Streamed {len(sentences)} sentence(s) with {character} at {sample_rate} Hz")
+        except Exception as e:
+            # Headers are already sent; ending without the end marker tells the client it is incomplete
+            print(f"Error during streaming synthesis: {e}", file=sys.stderr)
+            import traceback
+            traceback.print_exc()
+
+    return Response(stream_with_context(generate()), mimetype="application/octet-stream")
+
 @app.route('/list_speakers', methods=['GET'])
 def list_speakers():
     """
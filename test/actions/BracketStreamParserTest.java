@@ -0,0 +1,120 @@
+package actions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BracketStreamParserTest {
+
+    private final List<String> commands = new ArrayList<>();
+    private final BracketStreamParser parser = new BracketStreamParser(c -> commands.add(c.toString()));
+
+    /** Feeds the text in chunks of the given size, as a streamed response would arrive. */
+    private void feedInChunks(String text, int chunkSize) {
+        for (int i = 0; i < text.length(); i += chunkSize) {
+            parser.feed(text.substring(i, Math.min(text.length(), i + chunkSize)));
+        }
+    }
+
+    private static List<String> parseAll(String text, int chunkSize) {
+        List<String> out = new ArrayList<>();
+        BracketStreamParser p = new BracketStreamParser(c -> out.add(c.toString()));
+        for (int i = 0; i < text.length(); i += chunkSize) {
+            p.feed(text.substring(i, Math.min(text.length(), i + chunkSize)));
+        }
+        p.finish();
+        return out;
+    }
+
+    @Test
+    void emitsCommandsInOrderWithoutOuterBrackets() {
+        parser.feed("[levels:(add_exp_on_skill('Programming'))] text [memory:write_short_term('User is coding.')][speak:(Another bug?)]");
+        parser.finish();
+        assertEquals(List.of(
+                "levels:(add_exp_on_skill('Programming'))",
+                "memory:write_short_term('User is coding.')",
+                "speak:(Another bug?)"), commands);
+    }
+
+    @Test
+    void trimsWhitespaceInsideBrackets() {
+        parser.feed("[  speak:(hi)  ]");
+        assertEquals(List.of("speak:(hi)"), commands);
+    }
+
+    @Test
+    void keepsNestedBracketsAndParenthesesInOneCommand() {
+        parser.feed("[memory:write_long_term('likes [x] (a lot)')][speak:(look [here] ok)]");
+        assertEquals(List.of("memory:write_long_term('likes [x] (a lot)')", "speak:(look [here] ok)"), commands);
+    }
+
+    @Test
+    void apostrophesInArgumentsDoNotEndTheString() {
+        parser.feed("[memory:write_short_term('O'Brien said \"hi\"')]");
+        assertEquals(List.of("memory:write_short_term('O'Brien said \"hi\"')"), commands);
+    }
+
+    @Test
+    void quotedProseInSpeechDoesNotOpenAString() {
+        // "speak:(" is not a call, so the quote after "," is just text
+        feedInChunks("[speak:(Hmm, 'Elden Ring' again?)][levels:(add_exp_on_skill('Gaming'))]", 3);
+        assertEquals(List.of("speak:(Hmm, 'Elden Ring' again?)", "levels:(add_exp_on_skill('Gaming'))"), commands);
+        assertFalse(parser.hasPending());
+    }
+
+    @Test
+    void emitsEachCommandAsSoonAsItCloses() {
+        parser.feed("[speak:(I don't know, it's fine)");
+        assertTrue(commands.isEmpty());
+        assertTrue(parser.hasPending());
+        parser.feed("] [levels:add_sk");
+        assertEquals(List.of("speak:(I don't know, it's fine)"), commands);
+        parser.feed("ill('Go', 'Logic')]");
+        assertEquals(2, parser.getCommandCount());
+        assertEquals("levels:add_skill('Go', 'Logic')", commands.get(1));
+    }
+
+    @Test
+    void resultDoesNotDependOnChunkSize() {
+        String text = "[speak:(Hello, 'friend')] junk [memory:write_long_term('a, b [c]')] [levels:x]";
+        List<String> whole = parseAll(text, text.length());
+        for (int size = 1; size < 8; size++) {
+            assertEquals(whole, parseAll(text, size), "chunk size " + size);
+        }
+    }
+
+    @Test
+    void unclosedQuoteIsCutAtFirstBracketOnFinish() {
+        parser.feed("[memory:write_short_term('never closed] [levels:x]");
+        assertTrue(commands.isEmpty());
+        parser.finish();
+        assertEquals(List.of("memory:write_short_term('never closed", "levels:x"), commands);
+    }
+
+    @Test
+    void unterminatedCommandIsDroppedOnFinish() {
+        parser.feed("[speak:(hi)] [unterminated");
+        parser.finish();
+        assertEquals(List.of("speak:(hi)"), commands);
+        assertFalse(parser.hasPending());
+    }
+
+    @Test
+    void overlongUnclosedCommandIsRecoveredWithoutWaitingForFinish() {
+        parser.feed("[memory:write_short_term('open] ");
+        parser.feed("x".repeat(BracketStreamParser.MAX_COMMAND_LENGTH));
+        assertEquals(List.of("memory:write_short_term('open"), commands);
+    }
+
+    @Test
+    void textWithoutBracketsEmitsNothing() {
+        parser.feed("no commands here");
+        parser.finish();
+        assertEquals(0, parser.getCommandCount());
+    }
+}